@@ -0,0 +1,98 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs the benchmarks and fails when a throughput is lower than in the baseline by more than the tolerance.
+ * <p>
+ * System properties:
+ * <ul>
+ * <li><code>benchmark.include</code> regular expression of the benchmarks to run</li>
+ * <li><code>benchmark.result</code> file the results are written to in the JMH JSON format</li>
+ * <li><code>benchmark.baseline</code> results of a previous run to compare with, no comparison when not set</li>
+ * <li><code>benchmark.tolerance</code> allowed relative decrease of the throughput</li>
+ * </ul>
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        String result = System.getProperty("benchmark.result", "target/jmh-result.json");
+        Options options = new OptionsBuilder().include(System.getProperty("benchmark.include", ".*Benchmark.*"))
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        String baseline = System.getProperty("benchmark.baseline", "");
+        if (baseline.isBlank()) {
+            return;
+        }
+        double tolerance = Double.parseDouble(System.getProperty("benchmark.tolerance", "0.1"));
+        Map<String, Double> baselineScores = readScores(new File(baseline));
+        boolean regression = false;
+        for (RunResult runResult : results) {
+            String benchmark = runResult.getParams().getBenchmark();
+            double score = runResult.getPrimaryResult().getScore();
+            Double baselineScore = baselineScores.get(benchmark);
+            if (baselineScore == null) {
+                System.out.printf("%s: %.3f, not in the baseline%n", benchmark, score);
+                continue;
+            }
+            double change = (score - baselineScore) / baselineScore;
+            boolean failed = change < -tolerance;
+            regression |= failed;
+            System.out.printf(
+                    "%s: %.3f, baseline %.3f (%+.1f %%)%s%n",
+                    benchmark,
+                    score,
+                    baselineScore,
+                    change * 100,
+                    failed ? " REGRESSION" : "");
+        }
+        if (regression) {
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Double> readScores(File file) throws IOException {
+        Map<String, Double> scores = new HashMap<>();
+        for (JsonNode benchmark : new ObjectMapper().readTree(file)) {
+            scores.put(
+                    benchmark.get("benchmark").asText(),
+                    benchmark.get("primaryMetric").get("score").asDouble());
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jboss.pnc.bifrost.common.DateParser;
+import org.jboss.pnc.bifrost.kafkaconsumer.AcceptFilter;
+import org.jboss.pnc.bifrost.kafkaconsumer.Configuration;
+import org.jboss.pnc.bifrost.kafkaconsumer.DenyFilter;
+import org.jboss.pnc.bifrost.source.db.LogLevel;
+import org.jboss.pnc.bifrost.source.db.LogLine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processing of a message received from Kafka before it is stored.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestBenchmark {
+
+    private static final String MESSAGE = "{\"@timestamp\":\"2022-06-23T12:19:54.687Z\",\"sequence\":102382,"
+            + "\"loggerClassName\":\"org.slf4j.impl.Slf4jLogger\",\"loggerName\":\"org.jboss.pnc._userlog_.build-log\","
+            + "\"level\":\"INFO\",\"message\":\"[INFO] Downloading from indy: http://indy/api/content/maven/"
+            + "group/build-1/org/apache/maven/plugins/maven-compiler-plugin/3.8.1/maven-compiler-plugin-3.8.1.pom\","
+            + "\"threadName\":\"default task-58\",\"threadId\":16212,\"mdc\":{\"requestContext\":\"a6472f74-a50\","
+            + "\"processContext\":\"327784835315888128\",\"userId\":\"103\",\"buildId\":\"327032778354724864\"},"
+            + "\"ndc\":\"\",\"hostName\":\"orch-master-342-cvv96\",\"processName\":\"jboss-modules.jar\","
+            + "\"processId\":1021,\"@version\":\"1\"}";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private LogLine logLine;
+
+    private AcceptFilter acceptFilter;
+
+    private DenyFilter denyFilter;
+
+    @Setup
+    public void setup() throws IOException {
+        logLine = mapper.readValue(MESSAGE, LogLine.class);
+        acceptFilter = new AcceptFilter(
+                List.of(logFilter("org.jboss.pnc.causeway", LogLevel.DEBUG), logFilter("org.jboss.pnc", LogLevel.INFO)));
+        denyFilter = new DenyFilter(
+                List.<Configuration.LogDenyFilter> of(
+                        () -> "org.jboss.pnc.bpm.eventlogger.ProcessProgressLogger",
+                        () -> "org.jboss.pnc.rest.provider"));
+    }
+
+    @Benchmark
+    public LogLine deserialize() throws IOException {
+        return mapper.readValue(MESSAGE, LogLine.class);
+    }
+
+    @Benchmark
+    public Instant parseTime() {
+        return DateParser.parseTime("2022-06-23T12:19:54.687Z");
+    }
+
+    @Benchmark
+    public boolean acceptFilter() {
+        return acceptFilter.match(logLine);
+    }
+
+    @Benchmark
+    public boolean denyFilter() {
+        return denyFilter.match(logLine);
+    }
+
+    private static Configuration.LogFilter logFilter(String loggerNamePrefix, LogLevel level) {
+        return new Configuration.LogFilter() {
+            @Override
+            public String loggerNamePrefix() {
+                return loggerNamePrefix;
+            }
+
+            @Override
+            public LogLevel level() {
+                return level;
+            }
+        };
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.benchmark;
+
+import org.hibernate.engine.jdbc.proxy.BlobProxy;
+import org.jboss.pnc.api.bifrost.dto.Checksums;
+import org.jboss.pnc.api.bifrost.dto.Line;
+import org.jboss.pnc.bifrost.common.Digests;
+import org.jboss.pnc.bifrost.source.db.FinalLog;
+import org.jboss.pnc.bifrost.source.db.LineMapper;
+import org.jboss.pnc.bifrost.source.db.LogLevel;
+import org.jboss.pnc.common.Strings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading of the stored lines and final logs, without the database.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadBenchmark {
+
+    private static final String FILTERS = "mdc.processContext:327784835315888128,loggerName:org.jboss.pnc._userlog_,"
+            + "level:INFO,level:ERROR";
+
+    private static final int FINAL_LOG_SIZE = 16 * 1024 * 1024;
+
+    private final LineMapper.RowMapper rowMapper = new LineMapper.RowMapper();
+
+    private Object[] row;
+
+    private Line line;
+
+    private byte[] finalLogContent;
+
+    @Setup
+    public void setup() {
+        row = new Object[] { 1L, OffsetDateTime.of(2022, 6, 23, 12, 19, 54, 687000000, ZoneOffset.UTC), 102382L,
+                LogLevel.INFO, "org.jboss.pnc._userlog_.build-log",
+                "[INFO] Downloading from indy: maven-compiler-plugin-3.8.1.pom", 10L, 327784835315888128L, "0",
+                "a6472f74-a50", 327032778354724864L };
+        line = rowMapper.toLine(row, false);
+
+        finalLogContent = new byte[FINAL_LOG_SIZE];
+        new Random(1).nextBytes(finalLogContent);
+    }
+
+    @Benchmark
+    public Map<String, List<String>> parseFilters() {
+        return Strings.toMap(FILTERS);
+    }
+
+    @Benchmark
+    public Line mapRow() {
+        return rowMapper.toLine(row, false);
+    }
+
+    @Benchmark
+    public String formatLine() {
+        return line.asString();
+    }
+
+    /**
+     * Digest throughput of the final log checksums, operations are 16 MiB logs.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Checksums finalLogChecksums() throws SQLException, IOException {
+        FinalLog finalLog = new FinalLog();
+        finalLog.logContent = BlobProxy.generateProxy(finalLogContent);
+        Digests digests = Digests.create();
+        finalLog.digest(digests);
+        return digests.checksums();
+    }
+}
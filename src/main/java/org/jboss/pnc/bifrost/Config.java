@@ -22,6 +22,7 @@ import lombok.Setter;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Duration;
 
 /**
  * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
@@ -40,4 +41,135 @@ public class Config {
     @ConfigProperty(name = "bifrost.sourcePollThreads", defaultValue = "4")
     int sourcePollThreads;
 
+    /**
+     * Run the subscription polls and the reads of the followed lines on virtual threads, the poll threads only schedule
+     * them. Quarkus falls back to the worker threads when the JVM has no virtual threads.
+     */
+    @ConfigProperty(name = "bifrost.virtualThreads", defaultValue = "false")
+    boolean virtualThreads;
+
+    /**
+     * Max number of lines buffered for a client of the streaming REST endpoint or a WebSocket session, the subscriptions
+     * stop fetching when the client does not keep up.
+     */
+    @ConfigProperty(name = "bifrost.outputCredits", defaultValue = "1024")
+    int outputCredits;
+
+    /**
+     * Default max time a line waits for more lines when a WebSocket client requests the lines in batches.
+     */
+    @ConfigProperty(name = "bifrost.lineBatch.lingerMillis", defaultValue = "50")
+    int lineBatchLingerMillis;
+
+    @ConfigProperty(name = "bifrost.lineBatch.maxLingerMillis", defaultValue = "1000")
+    int lineBatchMaxLingerMillis;
+
+    @ConfigProperty(name = "bifrost.lineBatch.maxLines", defaultValue = "500")
+    int lineBatchMaxLines;
+
+    /**
+     * Max number of concurrent source reads, it should not exceed the size of the datasource pool.
+     */
+    @ConfigProperty(name = "bifrost.sourceReadPermits", defaultValue = "16")
+    int sourceReadPermits;
+
+    @ConfigProperty(name = "bifrost.sourceReadPermitTimeout", defaultValue = "PT1M")
+    Duration sourceReadPermitTimeout;
+
+    /**
+     * Number of bytes of a streaming response buffered before they are written out.
+     */
+    @ConfigProperty(name = "bifrost.streamOutput.bufferSize", defaultValue = "65536")
+    int streamOutputBufferSize;
+
+    /**
+     * Max time the lines of a streaming response are buffered while more lines are queued, the buffer is flushed
+     * immediately when there are no more lines to send.
+     */
+    @ConfigProperty(name = "bifrost.streamOutput.flushMillis", defaultValue = "200")
+    long streamOutputFlushMillis;
+
+    /**
+     * Max number of lines read by a single database cursor when streaming a range of lines.
+     */
+    @ConfigProperty(name = "bifrost.streamPageSize", defaultValue = "50000")
+    int streamPageSize;
+
+    /**
+     * Push lines stored by the Kafka consumer directly to the live subscriptions, the source is queried only to catch
+     * up.
+     */
+    @ConfigProperty(name = "bifrost.liveDispatch", defaultValue = "false")
+    boolean liveDispatch;
+
+    @ConfigProperty(name = "bifrost.liveDispatchQueueSize", defaultValue = "10000")
+    int liveDispatchQueueSize;
+
+    /**
+     * Only lines ingested by this instance are dispatched. Subscriptions read from the source at this interval to
+     * receive lines ingested by other instances, 0 disables it when there is a single instance.
+     */
+    @ConfigProperty(name = "bifrost.liveDispatchReconcileMillis", defaultValue = "10000")
+    long liveDispatchReconcileMillis;
+
+    /**
+     * Serve the live subscriptions with the same filters by a single source poll.
+     */
+    @ConfigProperty(name = "bifrost.coalescePolls", defaultValue = "true")
+    boolean coalescePolls;
+
+    /**
+     * Serve tail reads and reads continuing after a recent line from memory.
+     */
+    @ConfigProperty(name = "bifrost.recentLines.enabled", defaultValue = "true")
+    boolean recentLinesEnabled;
+
+    /**
+     * Number of lines kept per cached filter.
+     */
+    @ConfigProperty(name = "bifrost.recentLines.size", defaultValue = "1000")
+    int recentLinesSize;
+
+    @ConfigProperty(name = "bifrost.recentLines.maxEntries", defaultValue = "500")
+    long recentLinesMaxEntries;
+
+    @ConfigProperty(name = "bifrost.recentLines.idleTimeout", defaultValue = "PT10M")
+    Duration recentLinesIdleTimeout;
+
+    /**
+     * Max number of resolved log entries kept in memory by the log entry repositories.
+     */
+    @ConfigProperty(name = "bifrost.logEntryCache.maxEntries", defaultValue = "100000")
+    long logEntryCacheMaxEntries;
+
+    @ConfigProperty(name = "bifrost.logEntryCache.idleTimeout", defaultValue = "PT1H")
+    Duration logEntryCacheIdleTimeout;
+
+    /**
+     * Max number of digest states of final logs kept to extend the checksums when more parts are uploaded.
+     */
+    @ConfigProperty(name = "bifrost.finalLog.checksumCache.maxEntries", defaultValue = "10000")
+    long finalLogChecksumCacheMaxEntries;
+
+    @ConfigProperty(name = "bifrost.finalLog.checksumCache.idleTimeout", defaultValue = "PT24H")
+    Duration finalLogChecksumCacheIdleTimeout;
+
+    /**
+     * Source queries taking longer, including the mapping of the rows, are kept with their execution plan.
+     */
+    @ConfigProperty(name = "bifrost.slowQuery.threshold", defaultValue = "PT1S")
+    Duration slowQueryThreshold;
+
+    @ConfigProperty(name = "bifrost.slowQuery.maxKept", defaultValue = "50")
+    int slowQueryMaxKept;
+
+    @ConfigProperty(name = "bifrost.slowQuery.explain", defaultValue = "true")
+    boolean slowQueryExplain;
+
+    /**
+     * Slow queries of the same shape are explained at most once per the interval.
+     */
+    @ConfigProperty(name = "bifrost.slowQuery.explainInterval", defaultValue = "PT10M")
+    Duration slowQueryExplainInterval;
+
 }
@@ -0,0 +1,110 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.common;
+
+import lombok.Getter;
+
+import java.util.Optional;
+
+/**
+ * A single byte range of a HTTP <code>Range</code> header, resolved against the size of the content.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+@Getter
+public class ByteRange {
+
+    private static final String UNIT = "bytes=";
+
+    /**
+     * First byte, inclusive.
+     */
+    private final long start;
+
+    /**
+     * Last byte, inclusive.
+     */
+    private final long end;
+
+    private final long size;
+
+    private ByteRange(long start, long end, long size) {
+        this.start = start;
+        this.end = end;
+        this.size = size;
+    }
+
+    /**
+     * Parse the header value. Only a single range is supported, the header is ignored when it is not valid or it
+     * contains multiple ranges and the whole content is served.
+     *
+     * @param size size of the whole content
+     */
+    public static Optional<ByteRange> parse(String header, long size) {
+        if (header == null || !header.startsWith(UNIT) || header.indexOf(',') != -1) {
+            return Optional.empty();
+        }
+        String range = header.substring(UNIT.length()).trim();
+        int dash = range.indexOf('-');
+        if (dash == -1) {
+            return Optional.empty();
+        }
+        try {
+            String first = range.substring(0, dash).trim();
+            String last = range.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // suffix range, the last n bytes
+                long suffix = Long.parseLong(last);
+                if (suffix < 0) {
+                    return Optional.empty();
+                }
+                return Optional.of(new ByteRange(Math.max(0, size - suffix), size - 1, size));
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return Optional.empty();
+            }
+            return Optional.of(new ByteRange(start, Math.min(end, size - 1), size));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return false if the range starts after the content, <code>416 Range Not Satisfiable</code> should be returned
+     */
+    public boolean isSatisfiable() {
+        return start < size && start <= end;
+    }
+
+    public long getLength() {
+        return end - start + 1;
+    }
+
+    /**
+     * @return value of the <code>Content-Range</code> header
+     */
+    public String contentRange() {
+        if (isSatisfiable()) {
+            return "bytes " + start + "-" + end + "/" + size;
+        } else {
+            return "bytes */" + size;
+        }
+    }
+}
@@ -18,48 +18,56 @@
 package org.jboss.pnc.bifrost.common;
 
 import jakarta.validation.ValidationException;
-import jakarta.xml.bind.DatatypeConverter;
+import org.jboss.pnc.api.bifrost.dto.Checksums;
+
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.DigestInputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 public class ChecksumValidatingStream extends InputStream {
 
     protected volatile InputStream in;
 
-    private final MessageDigest md5;
+    private final Digests digests;
 
     private final String md5sum;
 
     private long size = 0;
 
-    private ChecksumValidatingStream(InputStream stream, MessageDigest md5, String md5sum) {
+    private Checksums checksums;
+
+    private ChecksumValidatingStream(InputStream stream, Digests digests, String md5sum) {
         this.in = stream;
-        this.md5 = md5;
+        this.digests = digests;
         this.md5sum = md5sum;
     }
 
+    /**
+     * Wrap the stream to validate its MD5 checksum. The SHA-1, SHA-256 and SHA-512 checksums are calculated in the
+     * same pass.
+     */
     public static ChecksumValidatingStream validate(InputStream is, String md5sum) {
-        MessageDigest md5;
-        try {
-            md5 = MessageDigest.getInstance("MD5");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
-        DigestInputStream md5dis = new DigestInputStream(is, md5);
-        return new ChecksumValidatingStream(md5dis, md5, md5sum);
+        Digests digests = Digests.create();
+        return new ChecksumValidatingStream(digests.digesting(is), digests, md5sum);
     }
 
     public void validate() throws ValidationException {
-        String md5computedSum = DatatypeConverter.printHexBinary(md5.digest());
+        String md5computedSum = getChecksums().getMd5();
         if (!md5computedSum.equalsIgnoreCase(md5sum)) {
             throw new ValidationException(
                     "Stream validation failed, expected " + md5sum + " got " + md5computedSum + ".");
         }
     }
 
+    /**
+     * @return checksums of the content, the stream must be read completely before
+     */
+    public Checksums getChecksums() {
+        if (checksums == null) {
+            checksums = digests.checksums();
+        }
+        return checksums;
+    }
+
     public long readSize() {
         return size;
     }
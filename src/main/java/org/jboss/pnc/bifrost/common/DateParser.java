@@ -2,6 +2,7 @@ package org.jboss.pnc.bifrost.common;
 
 import java.time.DateTimeException;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -12,12 +13,17 @@ public class DateParser {
             .ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSXXX")
             .withZone(ZoneId.systemDefault());
 
+    private static final DateTimeFormatter[] FORMATTERS = {
+            DEFAULT_DATE_TIME_FORMATTER,
+            DateTimeFormatter.ISO_INSTANT,
+            DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSZ").withZone(ZoneId.systemDefault()) };
+
     public static Instant parseTime(String time) {
-        DateTimeFormatter[] formatters = {
-                DEFAULT_DATE_TIME_FORMATTER,
-                DateTimeFormatter.ISO_INSTANT,
-                DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSZ").withZone(ZoneId.systemDefault()) };
-        for (DateTimeFormatter formatter : formatters) {
+        Instant instant = parseIsoOffsetDateTime(time);
+        if (instant != null) {
+            return instant;
+        }
+        for (DateTimeFormatter formatter : FORMATTERS) {
             try {
                 TemporalAccessor accessor = formatter.parse(time);
                 return Instant.from(accessor);
@@ -27,4 +33,98 @@ public class DateParser {
         }
         throw new DateTimeException("Invalid input datetime format [" + time + "]");
     }
+
+    /**
+     * Parse the common uuuu-MM-dd'T'HH:mm:ss[.fraction](Z|+HH:MM|+HHMM) format without the formatter machinery.
+     *
+     * @return null when the input is not in the expected format, so it can be parsed by the formatters
+     */
+    static Instant parseIsoOffsetDateTime(String time) {
+        int length = time.length();
+        if (length < 20 || time.charAt(4) != '-' || time.charAt(7) != '-' || time.charAt(10) != 'T'
+                || time.charAt(13) != ':' || time.charAt(16) != ':') {
+            return null;
+        }
+        int year = digits(time, 0, 4);
+        int month = digits(time, 5, 7);
+        int day = digits(time, 8, 10);
+        int hour = digits(time, 11, 13);
+        int minute = digits(time, 14, 16);
+        int second = digits(time, 17, 19);
+        if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0) {
+            return null;
+        }
+
+        int position = 19;
+        int nanos = 0;
+        if (time.charAt(position) == '.') {
+            position++;
+            int fractionStart = position;
+            while (position < length && position - fractionStart < 9 && isDigit(time.charAt(position))) {
+                nanos = nanos * 10 + (time.charAt(position) - '0');
+                position++;
+            }
+            int fractionDigits = position - fractionStart;
+            if (fractionDigits == 0) {
+                return null;
+            }
+            for (int i = fractionDigits; i < 9; i++) {
+                nanos *= 10;
+            }
+        }
+
+        int offsetSeconds;
+        if (position == length - 1 && time.charAt(position) == 'Z') {
+            offsetSeconds = 0;
+        } else if (position < length && (time.charAt(position) == '+' || time.charAt(position) == '-')) {
+            int offsetHours;
+            int offsetMinutes;
+            if (length - position == 6 && time.charAt(position + 3) == ':') {
+                offsetHours = digits(time, position + 1, position + 3);
+                offsetMinutes = digits(time, position + 4, position + 6);
+            } else if (length - position == 5) {
+                offsetHours = digits(time, position + 1, position + 3);
+                offsetMinutes = digits(time, position + 3, position + 5);
+            } else {
+                return null;
+            }
+            if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+                return null;
+            }
+            offsetSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (time.charAt(position) == '-' ? -1 : 1);
+        } else {
+            return null;
+        }
+
+        if (hour > 23 || minute > 59 || second > 59) {
+            return null;
+        }
+        long epochDay;
+        try {
+            epochDay = LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            return null;
+        }
+        long epochSecond = epochDay * 86400 + hour * 3600 + minute * 60 + second - offsetSeconds;
+        return Instant.ofEpochSecond(epochSecond, nanos);
+    }
+
+    /**
+     * @return the value of the digits between start (inclusive) and end (exclusive) or -1 if there is a non digit
+     */
+    private static int digits(String time, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = time.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
 }
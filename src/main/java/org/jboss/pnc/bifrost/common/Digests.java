@@ -0,0 +1,104 @@
+/**
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2021 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.common;
+
+import jakarta.xml.bind.DatatypeConverter;
+import org.jboss.pnc.api.bifrost.dto.Checksums;
+
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * MD5, SHA-1, SHA-256 and SHA-512 digests of the same content, calculated in one pass. The state can be copied to
+ * continue the calculation with more content while keeping the original.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class Digests {
+
+    private final MessageDigest md5;
+
+    private final MessageDigest sha1;
+
+    private final MessageDigest sha256;
+
+    private final MessageDigest sha512;
+
+    private Digests(MessageDigest md5, MessageDigest sha1, MessageDigest sha256, MessageDigest sha512) {
+        this.md5 = md5;
+        this.sha1 = sha1;
+        this.sha256 = sha256;
+        this.sha512 = sha512;
+    }
+
+    public static Digests create() {
+        return new Digests(
+                getMessageDigest("MD5"),
+                getMessageDigest("SHA-1"),
+                getMessageDigest("SHA-256"),
+                getMessageDigest("SHA-512"));
+    }
+
+    /**
+     * @return stream updating all the digests with the bytes read from the given stream
+     */
+    public InputStream digesting(InputStream inputStream) {
+        // chain digest input streams so that all checksums are calculated at the same time
+        DigestInputStream md5Stream = new DigestInputStream(inputStream, md5);
+        DigestInputStream sha1Stream = new DigestInputStream(md5Stream, sha1);
+        DigestInputStream sha256Stream = new DigestInputStream(sha1Stream, sha256);
+        return new DigestInputStream(sha256Stream, sha512);
+    }
+
+    public Digests copy() {
+        return new Digests(clone(md5), clone(sha1), clone(sha256), clone(sha512));
+    }
+
+    /**
+     * @return checksums of the content digested so far, the state is not reset so more content can be digested
+     */
+    public Checksums checksums() {
+        return new Checksums(
+                hex(clone(md5)),
+                hex(clone(sha1)),
+                hex(clone(sha256)),
+                hex(clone(sha512)));
+    }
+
+    private static String hex(MessageDigest digest) {
+        return DatatypeConverter.printHexBinary(digest.digest()).toLowerCase();
+    }
+
+    private static MessageDigest clone(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Digest " + digest.getAlgorithm() + " cannot be copied.", e);
+        }
+    }
+
+    private static MessageDigest getMessageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.common;
+
+import org.jboss.pnc.api.bifrost.dto.Line;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+
+/**
+ * Orders lines the same way the sources do: by timestamp, sequence and id. Values that cannot be parsed are compared
+ * as numbers or strings, so the comparator can be used with any source.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class LineOrder implements Comparator<Line> {
+
+    public static final LineOrder INSTANCE = new LineOrder();
+
+    @Override
+    public int compare(Line line1, Line line2) {
+        int result = compareTimestamps(line1.getTimestamp(), line2.getTimestamp());
+        if (result != 0) {
+            return result;
+        }
+        result = compareValues(line1.getSequence(), line2.getSequence());
+        if (result != 0) {
+            return result;
+        }
+        return compareValues(line1.getId(), line2.getId());
+    }
+
+    public static boolean isAfter(Line line, Line reference) {
+        return reference == null || INSTANCE.compare(line, reference) > 0;
+    }
+
+    private static int compareTimestamps(String timestamp1, String timestamp2) {
+        if (timestamp1 == null || timestamp2 == null || timestamp1.equals(timestamp2)) {
+            return compareNullable(timestamp1, timestamp2);
+        }
+        try {
+            return OffsetDateTime.parse(timestamp1)
+                    .toInstant()
+                    .compareTo(OffsetDateTime.parse(timestamp2).toInstant());
+        } catch (DateTimeParseException e) {
+            return compareValues(timestamp1, timestamp2);
+        }
+    }
+
+    private static int compareValues(String value1, String value2) {
+        if (value1 == null || value2 == null) {
+            return compareNullable(value1, value2);
+        }
+        try {
+            return Long.compare(Long.parseLong(value1), Long.parseLong(value2));
+        } catch (NumberFormatException e) {
+            return value1.compareTo(value2);
+        }
+    }
+
+    private static int compareNullable(String value1, String value2) {
+        if (value1 == null) {
+            return value2 == null ? 0 : -1;
+        }
+        return value2 == null ? 1 : 0;
+    }
+}
@@ -35,11 +35,14 @@ public class BackOffRunnable implements Runnable {
 
     private Long lastResult = 0L;
     private Long backOffNextCycles = 0L;
+    private long lastPaused = 0L;
 
     private Runnable runnable;
 
     private Optional<Runnable> cancelHook = Optional.empty();
 
+    private Optional<Runnable> resultHook = Optional.empty();
+
     public BackOffRunnable(BackOffRunnableConfig backOffRunnableConfig) {
         this.config = backOffRunnableConfig;
     }
@@ -51,37 +54,78 @@ public class BackOffRunnable implements Runnable {
     @Override
     public void run() {
         try {
-            if (lastResult == 0L) {
-                lastResult = System.currentTimeMillis() - config.getDelayMillis();
-            }
+            start();
             validateTimeout();
             if (backOffNextCycles > 0L) {
                 backOffNextCycles--;
                 logger.debug("Cycle skipped.");
                 return;
             }
-            Long backOff = (System.currentTimeMillis() - lastResult) / config.getDelayMillis();
+            backOffNextCycles = getCyclesToSkip();
+            logger.info("Running task ...");
+            runnable.run();
+        } catch (Exception e) {
+            logger.error("Error executing task.", e);
+            throw e;
+        }
+    }
 
-            backOffNextCycles = Long.min(backOff - 1, config.getMaxBackOffCycles());
+    /**
+     * Run the task without skipping a cycle, used when the runs are scheduled at the backed-off time.
+     *
+     * @return number of poll cycles to the next run
+     */
+    public long runNow() {
+        try {
+            start();
+            validateTimeout();
+            long cycles = 1 + Long.max(getCyclesToSkip(), 0L);
             logger.info("Running task ...");
             runnable.run();
+            return cycles;
         } catch (Exception e) {
             logger.error("Error executing task.", e);
             throw e;
         }
     }
 
+    private void start() {
+        if (lastResult == 0L) {
+            lastResult = System.currentTimeMillis() - config.getDelayMillis();
+        }
+    }
+
+    private long getCyclesToSkip() {
+        long backOff = (System.currentTimeMillis() - lastResult) / config.getDelayMillis();
+        return Long.min(backOff - 1, config.getMaxBackOffCycles());
+    }
+
     private void validateTimeout() {
-        if (System.currentTimeMillis() - lastResult > config.getTimeOutMillis()) {
+        if (System.currentTimeMillis() - Long.max(lastResult, lastPaused) > config.getTimeOutMillis()) {
             cancelHook.ifPresent(Runnable::run);
         }
     }
 
+    /**
+     * The task was not run because its consumer is not ready, the time without results is not counted to the timeout.
+     */
+    public void paused() {
+        this.lastPaused = System.currentTimeMillis();
+    }
+
     public void receivedResult() {
         this.lastResult = System.currentTimeMillis();
+        resultHook.ifPresent(Runnable::run);
     }
 
     public void setCancelHook(Runnable cancelHook) {
         this.cancelHook = Optional.ofNullable(Context.current().wrap(cancelHook));
     }
+
+    /**
+     * @param resultHook run on each received result
+     */
+    void setResultHook(Runnable resultHook) {
+        this.resultHook = Optional.ofNullable(resultHook);
+    }
 }
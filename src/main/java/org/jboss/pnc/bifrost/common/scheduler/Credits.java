@@ -0,0 +1,119 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.common.scheduler;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Flow control between the subscription tasks and a consumer with an output buffer. Each result passed to the
+ * consumer takes a credit, the consumer returns it once the result is written out. A subscription without credits
+ * pauses fetching, it is resumed when the consumer drained half of the buffer. The credits can be shared by more
+ * subscriptions writing to the same output.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class Credits {
+
+    private static final Credits UNLIMITED = new Credits(Integer.MAX_VALUE);
+
+    private final int capacity;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private final AtomicBoolean paused = new AtomicBoolean();
+
+    private final List<Runnable> resumeListeners = new CopyOnWriteArrayList<>();
+
+    public Credits(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Credits of the consumers without an output buffer, they are never paused.
+     */
+    public static Credits unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * @return the number of results the consumer can take, when there are none the producer is paused until the
+     *         consumer drains its buffer
+     */
+    public int available() {
+        if (this == UNLIMITED) {
+            return capacity;
+        }
+        int available = capacity - outstanding.get();
+        if (available > 0) {
+            return available;
+        }
+        paused.set(true);
+        // the consumer might have drained the buffer before it could see the pause
+        available = capacity - outstanding.get();
+        if (available > capacity / 2 && paused.compareAndSet(true, false)) {
+            return available;
+        }
+        return 0;
+    }
+
+    /**
+     * A result was passed to the consumer.
+     */
+    public void take() {
+        if (this != UNLIMITED) {
+            outstanding.incrementAndGet();
+        }
+    }
+
+    /**
+     * The consumer has written out a result.
+     */
+    public void release() {
+        release(1);
+    }
+
+    /**
+     * The consumer has written out the given number of results at once.
+     */
+    public void release(int results) {
+        if (this == UNLIMITED) {
+            return;
+        }
+        int left = outstanding.addAndGet(-results);
+        if (left <= capacity / 2 && paused.compareAndSet(true, false)) {
+            resumeListeners.forEach(Runnable::run);
+        }
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    void addResumeListener(Runnable listener) {
+        if (this != UNLIMITED) {
+            resumeListeners.add(listener);
+        }
+    }
+
+    void removeResumeListener(Runnable listener) {
+        resumeListeners.remove(listener);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.common.scheduler;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+
+import net.javacrumbs.shedlock.cdi.SchedulerLock;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.bifrost.source.db.FinalLogUploadSession;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Deletes multipart uploads of final logs which were not completed in time together with their parts.
+ */
+@ApplicationScoped
+@Slf4j
+public class FinalLogUploadCleanupService {
+
+    @ConfigProperty(name = "bifrost.finalLog.multipartUpload.cleanup.batch-size", defaultValue = "100")
+    int batchSize;
+
+    @ConfigProperty(name = "bifrost.finalLog.multipartUpload.expireAfter", defaultValue = "P1D")
+    Duration expireAfter;
+
+    @Scheduled(
+            cron = "${bifrost.finalLog.multipartUpload.cleanupCron}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    @SchedulerLock(name = "finalLogUploadCleanup", lockAtMostFor = "PT1H")
+    public void cleanupExpiredUploads() {
+        OffsetDateTime thresholdDate = OffsetDateTime.now().minus(expireAfter);
+
+        long totalDeletedCount = 0;
+        long deletedInBatchCount;
+        do {
+            deletedInBatchCount = deleteBatch(thresholdDate);
+            totalDeletedCount += deletedInBatchCount;
+        } while (deletedInBatchCount > 0);
+
+        if (totalDeletedCount > 0) {
+            log.info("Deleted {} multipart uploads started before {}", totalDeletedCount, thresholdDate);
+        }
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public long deleteBatch(OffsetDateTime thresholdDate) {
+        List<FinalLogUploadSession> expired = FinalLogUploadSession.listCreatedBefore(thresholdDate, batchSize);
+        expired.forEach(FinalLogUploadSession::deleteWithParts);
+        return expired.size();
+    }
+}
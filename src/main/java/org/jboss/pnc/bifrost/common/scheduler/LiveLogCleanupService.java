@@ -17,24 +17,30 @@
  */
 package org.jboss.pnc.bifrost.common.scheduler;
 
-import io.quarkus.panache.common.Page;
 import io.quarkus.scheduler.Scheduled;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 
 import net.javacrumbs.shedlock.cdi.SchedulerLock;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.pnc.bifrost.source.db.LogLine;
+import org.jboss.pnc.bifrost.source.db.LogLinePartitions;
 
 import java.time.OffsetDateTime;
 import java.time.Period;
 import java.util.List;
+import java.util.Optional;
 
 @ApplicationScoped
 @Slf4j
 public class LiveLogCleanupService {
 
+    // language=PostgreSQL
+    private static final String DELETE_BATCH = "delete from LogLine where id in (select id from LogLine"
+            + " where eventTimestamp < :thresholdDate and loggerName in (:loggerNames) limit :batchSize)";
+
     @ConfigProperty(name = "log.cleanup.batch-size", defaultValue = "10000")
     int batchSize;
 
@@ -44,9 +50,21 @@ public class LiveLogCleanupService {
     @ConfigProperty(name = "log.cleanup.logger-names", defaultValue = "")
     List<String> loggerNames;
 
+    /**
+     * When set, partitions of the live logs older than this are dropped with the lines of all the loggers. Requires
+     * the LogLine table to be partitioned by the event timestamp.
+     */
+    @ConfigProperty(name = "log.cleanup.drop-partitions-after")
+    Optional<Period> dropPartitionsAfter;
+
+    @Inject
+    LogLinePartitions partitions;
+
     @Scheduled(cron = "${bifrost.liveLogCleanupCron}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
     @SchedulerLock(name = "liveLogCleanup", lockAtMostFor = "PT4H")
     public void cleanupLiveLogs() {
+        dropPartitionsAfter.ifPresent(this::dropPartitions);
+
         OffsetDateTime thresholdDate = OffsetDateTime.now().minus(deleteAfter);
 
         long totalDeletedCount = 0;
@@ -68,25 +86,27 @@ public class LiveLogCleanupService {
         log.info("Deleted {} live log lines older than {}", totalDeletedCount, thresholdDate);
     }
 
+    private void dropPartitions(Period dropAfter) {
+        OffsetDateTime thresholdDate = OffsetDateTime.now().minus(dropAfter);
+        List<String> toBeDropped = partitions.listEndingBefore(thresholdDate);
+        log.info("Dropping {} partitions of live log lines older than {}", toBeDropped.size(), thresholdDate);
+        toBeDropped.forEach(partitions::drop);
+    }
+
+    /**
+     * Delete a batch of lines with a single statement, the ids are selected by the database.
+     */
     @Transactional(Transactional.TxType.REQUIRES_NEW)
     public long deleteBatch(OffsetDateTime thresholdDate) {
         if (loggerNames.isEmpty()) {
             return 0;
         }
 
-        List<Long> idsToBeDeleted = LogLine
-                .find(
-                        "select id from LogLine where eventTimestamp < ?1 and loggerName in ?2",
-                        thresholdDate,
-                        loggerNames)
-                .project(Long.class)
-                .page(Page.ofSize(batchSize))
-                .list();
-
-        if (idsToBeDeleted.isEmpty()) {
-            return 0;
-        }
-
-        return LogLine.delete("id in ?1", idsToBeDeleted);
+        return LogLine.getEntityManager()
+                .createNativeQuery(DELETE_BATCH)
+                .setParameter("thresholdDate", thresholdDate)
+                .setParameter("loggerNames", loggerNames)
+                .setParameter("batchSize", batchSize)
+                .executeUpdate();
     }
 }
@@ -0,0 +1,67 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.common.scheduler;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+import net.javacrumbs.shedlock.cdi.SchedulerLock;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.bifrost.source.db.LogLinePartitions;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Creates the monthly partitions of the live log lines ahead of time. Does nothing when the LogLine table is not
+ * partitioned. Expired partitions are dropped by the {@link LiveLogCleanupService}.
+ */
+@ApplicationScoped
+@Slf4j
+public class LogLinePartitionService {
+
+    @ConfigProperty(name = "bifrost.logLinePartitions.monthsAhead", defaultValue = "2")
+    int monthsAhead;
+
+    @Inject
+    LogLinePartitions partitions;
+
+    @Scheduled(
+            cron = "${bifrost.logLinePartitions.maintenanceCron}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    @SchedulerLock(name = "logLinePartitionMaintenance", lockAtMostFor = "PT1H")
+    public void createPartitions() {
+        if (!partitions.isPartitioned()) {
+            return;
+        }
+        OffsetDateTime currentMonth = OffsetDateTime.now(ZoneOffset.UTC)
+                .withDayOfMonth(1)
+                .truncatedTo(ChronoUnit.DAYS);
+        OffsetDateTime until = currentMonth.plusMonths(monthsAhead + 1);
+
+        // continue after the last partition, the first one created by the migration ends at the next month
+        OffsetDateTime from = partitions.getUpperBound().orElse(currentMonth);
+        while (from.isBefore(until)) {
+            partitions.createMonth(from);
+            from = from.plusMonths(1);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.common.scheduler;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls when the backed-off task is due. The next run is scheduled once the previous one finishes, idle
+ * subscriptions are not woken at every poll interval just to skip the cycle. The pending runs are kept in the deadline
+ * ordered queue of the scheduling executor, a cancelled run is removed from it.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+class ScheduledPoll {
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Executor taskExecutor;
+
+    private final BackOffRunnable backOffRunnable;
+
+    private final long intervalMillis;
+
+    private ScheduledFuture<?> next;
+
+    private long nextRunNanos;
+
+    private volatile boolean running;
+
+    private boolean cancelled;
+
+    /**
+     * @param taskExecutor runs the task when it is due, the scheduler thread runs it when it is not set
+     */
+    ScheduledPoll(
+            ScheduledExecutorService scheduler,
+            Executor taskExecutor,
+            BackOffRunnable backOffRunnable,
+            long intervalMillis) {
+        this.scheduler = scheduler;
+        this.taskExecutor = taskExecutor != null ? taskExecutor : Runnable::run;
+        this.backOffRunnable = backOffRunnable;
+        this.intervalMillis = intervalMillis;
+        backOffRunnable.setResultHook(this::receivedResult);
+    }
+
+    synchronized void start() {
+        schedule(0L);
+    }
+
+    synchronized void cancel() {
+        cancelled = true;
+        if (next != null) {
+            next.cancel(true);
+        }
+    }
+
+    private void schedule(long delayMillis) {
+        nextRunNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        next = scheduler.schedule(this::due, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void due() {
+        synchronized (this) {
+            if (cancelled || running) {
+                return;
+            }
+            running = true;
+        }
+        taskExecutor.execute(this::run);
+    }
+
+    private void run() {
+        long cycles = 1L;
+        try {
+            cycles = backOffRunnable.runNow();
+        } catch (Exception e) {
+            // logged by the back off runnable, the subscription is cancelled by its timeout when the errors persist
+        } finally {
+            synchronized (this) {
+                running = false;
+                if (!cancelled) {
+                    schedule(cycles * intervalMillis);
+                }
+            }
+        }
+    }
+
+    /**
+     * A result received outside of the scheduled run, eg. by a triggered run, resets the back off. A run scheduled
+     * later than the poll interval is brought forward.
+     */
+    private void receivedResult() {
+        if (running) {
+            return; // the next run is scheduled when the running one finishes
+        }
+        synchronized (this) {
+            if (!running && !cancelled && next != null
+                    && nextRunNanos - System.nanoTime() > TimeUnit.MILLISECONDS.toNanos(intervalMillis)) {
+                next.cancel(false);
+                schedule(intervalMillis);
+            }
+        }
+    }
+}
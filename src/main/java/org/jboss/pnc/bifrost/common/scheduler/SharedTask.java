@@ -0,0 +1,82 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.common.scheduler;
+
+import java.util.Comparator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Task shared by all the subscriptions with the same group key. Subscriptions in a group are served from a single
+ * poll, the results are passed to each subscription that didn't receive them yet.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class SharedTask<T> {
+
+    private final String groupKey;
+
+    private final Consumer<Subscriptions.TaskParameters<T>> task;
+
+    private final Comparator<T> order;
+
+    private final Predicate<T> endOfData;
+
+    private final UnaryOperator<T> copy;
+
+    /**
+     * @param groupKey subscriptions with the same key must expect the same results from the task
+     * @param task task reading results after the last result of the group
+     * @param order order of the results, used to skip results a subscription already received
+     * @param endOfData true when there are no more results to read at the moment
+     * @param copy creates a copy of the result, each subscription receives its own instance
+     */
+    public SharedTask(
+            String groupKey,
+            Consumer<Subscriptions.TaskParameters<T>> task,
+            Comparator<T> order,
+            Predicate<T> endOfData,
+            UnaryOperator<T> copy) {
+        this.groupKey = groupKey;
+        this.task = task;
+        this.order = order;
+        this.endOfData = endOfData;
+        this.copy = copy;
+    }
+
+    public String getGroupKey() {
+        return groupKey;
+    }
+
+    Consumer<Subscriptions.TaskParameters<T>> getTask() {
+        return task;
+    }
+
+    Comparator<T> getOrder() {
+        return order;
+    }
+
+    Predicate<T> getEndOfData() {
+        return endOfData;
+    }
+
+    UnaryOperator<T> getCopy() {
+        return copy;
+    }
+}
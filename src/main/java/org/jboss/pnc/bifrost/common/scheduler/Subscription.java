@@ -33,16 +33,28 @@ public class Subscription {
      */
     private Runnable onUnsubscribe;
 
+    private final Credits credits;
+
     public Subscription(Runnable onUnsubscribe) {
-        clientId = UUID.randomUUID().toString();
-        topic = "";
-        this.onUnsubscribe = onUnsubscribe;
+        this(onUnsubscribe, Credits.unlimited());
+    }
+
+    public Subscription(Runnable onUnsubscribe, Credits credits) {
+        this(UUID.randomUUID().toString(), "", onUnsubscribe, credits);
     }
 
     public Subscription(String clientId, String topic, Runnable onUnsubscribe) {
+        this(clientId, topic, onUnsubscribe, Credits.unlimited());
+    }
+
+    /**
+     * @param credits flow control of the consumer, the subscription is paused while it has no credits
+     */
+    public Subscription(String clientId, String topic, Runnable onUnsubscribe, Credits credits) {
         this.clientId = clientId;
         this.topic = topic;
         this.onUnsubscribe = onUnsubscribe;
+        this.credits = credits;
     }
 
     public String getClientId() {
@@ -53,6 +65,10 @@ public class Subscription {
         return topic;
     }
 
+    public Credits getCredits() {
+        return credits;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
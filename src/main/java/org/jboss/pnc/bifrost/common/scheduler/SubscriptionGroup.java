@@ -0,0 +1,234 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.common.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Subscriptions served by a single poll. A new member first reads on its own until it reaches the end of the data,
+ * then it joins the group and receives the results of the shared poll. The reads of a member catching up run on its own
+ * task, the shared poll of the joined members does not wait for them. Each member keeps its own cursor so it never
+ * receives a result twice. A member out of credits leaves the group and catches up on its own once it has credits
+ * again.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+class SubscriptionGroup<T> {
+
+    private final Logger logger = LoggerFactory.getLogger(SubscriptionGroup.class);
+
+    private final SharedTask<T> sharedTask;
+
+    private final BackOffRunnable backOffRunnable;
+
+    private final Executor catchUpExecutor;
+
+    private final Map<Subscription, Member<T>> members = new ConcurrentHashMap<>();
+
+    private Runnable cancel;
+
+    /**
+     * Last result read by the shared poll, accessed only while holding the group monitor.
+     */
+    private T head;
+
+    /**
+     * @param catchUpExecutor runs the reads of the members catching up
+     */
+    SubscriptionGroup(SharedTask<T> sharedTask, BackOffRunnable backOffRunnable, Executor catchUpExecutor) {
+        this.sharedTask = sharedTask;
+        this.backOffRunnable = backOffRunnable;
+        this.catchUpExecutor = catchUpExecutor;
+        backOffRunnable.setRunnable(this::run);
+    }
+
+    BackOffRunnable getBackOffRunnable() {
+        return backOffRunnable;
+    }
+
+    /**
+     * @param cancel stops the shared poll when the last member leaves
+     */
+    void setCancel(Runnable cancel) {
+        this.cancel = cancel;
+    }
+
+    void add(
+            Subscription subscription,
+            Consumer<Subscriptions.TaskParameters<T>> task,
+            T initialLastResult,
+            Consumer<T> onResult) {
+        members.put(subscription, new Member<>(task, initialLastResult, onResult, subscription.getCredits()));
+    }
+
+    /**
+     * @return true if the group has no more members and was cancelled
+     */
+    boolean remove(Subscription subscription) {
+        Member<T> member = members.remove(subscription);
+        if (member != null) {
+            member.removed = true;
+        }
+        if (members.isEmpty()) {
+            cancel.run();
+            return true;
+        }
+        return false;
+    }
+
+    Set<Subscription> getMembers() {
+        return members.keySet();
+    }
+
+    void run() {
+        for (Member<T> member : members.values()) {
+            if (member.joined) {
+                continue;
+            }
+            if (member.credits.available() < 1) {
+                // the member catches up once its consumer drains the buffer
+                backOffRunnable.paused();
+            } else if (member.catchingUp.compareAndSet(false, true)) {
+                catchUpExecutor.execute(() -> catchUp(member));
+            }
+        }
+        runShared();
+    }
+
+    private synchronized void runShared() {
+        for (Member<T> member : members.values()) {
+            if (member.joined && member.credits.available() < 1) {
+                // the member falls behind and catches up on its own once its consumer drains the buffer
+                member.joined = false;
+                backOffRunnable.paused();
+            }
+        }
+
+        List<Member<T>> joined = new ArrayList<>();
+        members.values().stream().filter(m -> m.joined).forEach(joined::add);
+        if (joined.isEmpty()) {
+            return;
+        }
+
+        logger.debug("Running shared task for {} subscriptions.", joined.size());
+        sharedTask.getTask().accept(new Subscriptions.TaskParameters<>(head, result -> {
+            T previousHead = head;
+            if (result != null) { // null indicates end of message stream
+                head = result;
+                backOffRunnable.receivedResult();
+            }
+            boolean first = true;
+            for (Member<T> member : joined) {
+                if (member.removed || !member.joined) {
+                    continue; // unsubscribed or out of credits while the task was running
+                }
+                if (result != null) {
+                    if (member.credits.available() < 1) {
+                        // the rest is read by the member from its cursor once its consumer drains the buffer
+                        member.joined = false;
+                        backOffRunnable.paused();
+                        continue;
+                    }
+                    // members in sync with the group don't need the comparison
+                    if (member.cursor != previousHead && member.cursor != null
+                            && sharedTask.getOrder().compare(result, member.cursor) <= 0) {
+                        continue;
+                    }
+                    member.cursor = result;
+                }
+                member.onResult.accept(first || result == null ? result : sharedTask.getCopy().apply(result));
+                first = false;
+            }
+        }));
+    }
+
+    /**
+     * Read on the member's own task until the end of data, the member joins the group if the shared poll did not get
+     * ahead in the meantime. Otherwise it continues catching up on the next run.
+     */
+    private void catchUp(Member<T> member) {
+        try {
+            boolean[] endOfData = { false };
+            member.task.accept(new Subscriptions.TaskParameters<>(member.cursor, result -> {
+                if (result != null) {
+                    member.cursor = result;
+                    backOffRunnable.receivedResult();
+                }
+                if (result == null || sharedTask.getEndOfData().test(result)) {
+                    endOfData[0] = true;
+                }
+                member.onResult.accept(result);
+            }));
+            if (endOfData[0] && !member.removed) {
+                join(member);
+            }
+        } catch (Exception e) {
+            logger.error("Error catching up the subscription.", e);
+        } finally {
+            member.catchingUp.set(false);
+        }
+    }
+
+    private synchronized void join(Member<T> member) {
+        boolean groupActive = members.values().stream().anyMatch(m -> m.joined);
+        if (!groupActive) {
+            head = member.cursor;
+            member.joined = true;
+        } else if (head == null
+                || (member.cursor != null && sharedTask.getOrder().compare(member.cursor, head) >= 0)) {
+            member.joined = true;
+        }
+    }
+
+    private static class Member<T> {
+
+        private final Consumer<Subscriptions.TaskParameters<T>> task;
+
+        private final Consumer<T> onResult;
+
+        private final Credits credits;
+
+        /**
+         * Written by the catch-up task and by the shared poll once the member joined, never at the same time.
+         */
+        private volatile T cursor;
+
+        private volatile boolean joined;
+
+        private final AtomicBoolean catchingUp = new AtomicBoolean();
+
+        private volatile boolean removed;
+
+        Member(Consumer<Subscriptions.TaskParameters<T>> task, T cursor, Consumer<T> onResult, Credits credits) {
+            this.task = task;
+            this.cursor = cursor;
+            this.onResult = onResult;
+            this.credits = credits;
+        }
+    }
+}
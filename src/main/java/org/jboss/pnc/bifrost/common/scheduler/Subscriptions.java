@@ -18,9 +18,11 @@
 package org.jboss.pnc.bifrost.common.scheduler;
 
 import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.opentelemetry.context.Context;
+import io.quarkus.virtual.threads.VirtualThreads;
 import jakarta.annotation.PostConstruct;
 import org.apache.lucene.util.NamedThreadFactory;
 import org.jboss.pnc.bifrost.Config;
@@ -30,16 +32,17 @@ import org.slf4j.LoggerFactory;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
@@ -51,27 +54,46 @@ public class Subscriptions {
 
     private Logger logger = LoggerFactory.getLogger(Subscriptions.class);
 
-    private Map<Subscription, ScheduledFuture> subscriptions;
+    private Map<Subscription, ScheduledTask> subscriptions;
+
+    private Map<String, SubscriptionGroup<?>> groups;
 
     private ScheduledExecutorService executor;
 
+    /**
+     * Runs the tasks, they are run by the scheduling executor unless they run on virtual threads.
+     */
+    private ExecutorService taskExecutor;
+
     @Inject
     MeterRegistry registry;
 
     private Gauge subscriptionsMapSize;
 
+    private Gauge groupsMapSize;
+
+    private Counter pausedCounter;
+
     @PostConstruct
     void initMetrics() {
+        pausedCounter = registry.counter(className + ".paused.count");
         subscriptionsMapSize = Gauge
                 .builder(className + ".subscriptions.map.size", this, Subscriptions::getSubscriptionsMapSize)
                 .description("current subscriptions map size")
                 .register(registry);
+        groupsMapSize = Gauge.builder(className + ".groups.map.size", this, Subscriptions::getGroupsMapSize)
+                .description("current number of shared subscription groups")
+                .register(registry);
     }
 
     private int getSubscriptionsMapSize() {
         return subscriptions.size();
     }
 
+    private int getGroupsMapSize() {
+        return groups.size();
+    }
+
     /**
      * CDI workaround
      */
@@ -80,17 +102,24 @@ public class Subscriptions {
     }
 
     @Inject
-    public Subscriptions(Config config) {
+    public Subscriptions(Config config, @VirtualThreads ExecutorService virtualThreads) {
         subscriptions = new ConcurrentHashMap<>();
-        executor = Context.current()
-                .wrap(
-                        Executors.newScheduledThreadPool(
-                                config.getSourcePollThreads(),
-                                new NamedThreadFactory("subscriptions")));
+        groups = new ConcurrentHashMap<>();
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(
+                config.getSourcePollThreads(),
+                new NamedThreadFactory("subscriptions"));
+        scheduler.setRemoveOnCancelPolicy(true);
+        executor = Context.current().wrap(scheduler);
+        if (config.isVirtualThreads()) {
+            logger.info("Subscription tasks run on virtual threads.");
+            taskExecutor = Context.current().wrap(virtualThreads);
+        } else {
+            taskExecutor = executor;
+        }
     }
 
     public void submit(Runnable task) {
-        executor.submit(task);
+        taskExecutor.submit(task);
     }
 
     public <T> void run(Consumer<TaskParameters<T>> task, Optional<T> initialLastResult, Consumer<T> onResult) {
@@ -98,7 +127,7 @@ public class Subscriptions {
     }
 
     public <T> void submit(Consumer<TaskParameters<T>> task, Optional<T> initialLastResult, Consumer<T> onResult) {
-        executor.submit(() -> task.accept(new TaskParameters(initialLastResult.get(), onResult)));
+        taskExecutor.submit(() -> task.accept(new TaskParameters(initialLastResult.get(), onResult)));
     }
 
     @Timed
@@ -109,11 +138,32 @@ public class Subscriptions {
             Consumer<T> onResult,
             BackOffRunnableConfig backOffRunnableConfig,
             Optional<Integer> batchDelay) {
+        subscribe(subscription, task, initialLastResult, onResult, backOffRunnableConfig, batchDelay, () -> {});
+    }
+
+    /**
+     * @param onCancel run once when the subscription is removed, regardless of the reason
+     */
+    @Timed
+    public <T> void subscribe(
+            Subscription subscription,
+            Consumer<TaskParameters<T>> task,
+            Optional<T> initialLastResult,
+            Consumer<T> onResult,
+            BackOffRunnableConfig backOffRunnableConfig,
+            Optional<Integer> batchDelay,
+            Runnable onCancel) {
 
         BackOffRunnable backOffRunnable = new BackOffRunnable(backOffRunnableConfig);
 
         Reference<T> lastResult = new Reference<>(initialLastResult.orElse(null));
         Runnable internalTask = () -> {
+            if (subscription.getCredits().available() < 1) {
+                // the consumer is not ready, the task is triggered when it drains its buffer
+                pausedCounter.increment();
+                backOffRunnable.paused();
+                return;
+            }
             Consumer<T> onResultInternal = result -> {
                 if (result != null) { // null indicates end of message stream
                     lastResult.set(result);
@@ -122,28 +172,126 @@ public class Subscriptions {
                 onResult.accept(result);
             };
 
-            task.accept(new TaskParameters(lastResult.get(), onResultInternal));
+            // the task reads the cursor once it is not running concurrently, a run started at the same time could
+            // have moved it
+            task.accept(new TaskParameters<T>(lastResult::get, onResultInternal));
 
         };
 
         backOffRunnable.setRunnable(internalTask);
         backOffRunnable.setCancelHook(() -> unsubscribe(subscription, UnsubscribeReason.NO_DATA_FROM_SOURCE));
-        ScheduledFuture<?> scheduledFuture = executor.scheduleAtFixedRate(
+        ScheduledPoll poll = new ScheduledPoll(
+                executor,
+                getPollExecutor(),
                 backOffRunnable,
-                0,
-                batchDelay.map(Long::valueOf).orElse(backOffRunnableConfig.getPollIntervalMillis()),
-                TimeUnit.MILLISECONDS);
-        subscriptions.put(subscription, scheduledFuture);
+                batchDelay.map(Long::valueOf).orElse(backOffRunnableConfig.getPollIntervalMillis()));
+        poll.start();
+        Runnable resume = () -> trigger(subscription);
+        subscription.getCredits().addResumeListener(resume);
+        subscriptions.put(subscription, new ScheduledTask(() -> {
+            poll.cancel();
+            subscription.getCredits().removeResumeListener(resume);
+        }, Context.current().wrap(internalTask), onCancel));
+    }
+
+    /**
+     * Subscribe to a task shared by all the subscriptions with the same group key. The subscription runs the task on
+     * its own until it reaches the end of data, then it is served by a single poll of the group.
+     *
+     * @param task the task used before the subscription joins the group
+     */
+    @Timed
+    public <T> void subscribeShared(
+            Subscription subscription,
+            SharedTask<T> sharedTask,
+            Consumer<TaskParameters<T>> task,
+            Optional<T> initialLastResult,
+            Consumer<T> onResult,
+            BackOffRunnableConfig backOffRunnableConfig,
+            Optional<Integer> batchDelay) {
+        String groupKey = sharedTask.getGroupKey();
+        Runnable runGroup = () -> Optional.ofNullable(groups.get(groupKey)).ifPresent(SubscriptionGroup::run);
+        Runnable resume = () -> trigger(subscription);
+        ScheduledTask scheduledTask = new ScheduledTask(() -> {
+            leaveGroup(groupKey, subscription);
+            subscription.getCredits().removeResumeListener(resume);
+        }, Context.current().wrap(runGroup), () -> {});
+        subscriptions.put(subscription, scheduledTask);
+        subscription.getCredits().addResumeListener(resume);
+        groups.compute(groupKey, (key, existing) -> {
+            SubscriptionGroup<T> group = (SubscriptionGroup<T>) existing;
+            if (group == null) {
+                logger.debug("Creating subscription group: " + groupKey);
+                group = new SubscriptionGroup<>(sharedTask, new BackOffRunnable(backOffRunnableConfig), taskExecutor);
+                group.getBackOffRunnable()
+                        .setCancelHook(() -> unsubscribeGroup(groupKey, UnsubscribeReason.NO_DATA_FROM_SOURCE));
+                ScheduledPoll poll = new ScheduledPoll(
+                        executor,
+                        getPollExecutor(),
+                        group.getBackOffRunnable(),
+                        batchDelay.map(Long::valueOf).orElse(backOffRunnableConfig.getPollIntervalMillis()));
+                group.setCancel(poll::cancel);
+                poll.start();
+            }
+            group.add(subscription, task, initialLastResult.orElse(null), onResult);
+            return group;
+        });
+    }
+
+    /**
+     * @return scheduler for the short delays of the subscription consumers, the delayed tasks must not block
+     */
+    public ScheduledExecutorService getScheduler() {
+        return executor;
+    }
+
+    /**
+     * @return executor running the polls when they are due, null when they run on the scheduling threads
+     */
+    private ExecutorService getPollExecutor() {
+        return taskExecutor == executor ? null : taskExecutor;
+    }
+
+    private void leaveGroup(String groupKey, Subscription subscription) {
+        groups.computeIfPresent(groupKey, (key, group) -> group.remove(subscription) ? null : group);
+    }
+
+    /**
+     * Unsubscribe all the members of the group.
+     */
+    public void unsubscribeGroup(String groupKey, UnsubscribeReason reason) {
+        SubscriptionGroup<?> group = groups.get(groupKey);
+        if (group != null) {
+            new ArrayList<>(group.getMembers()).forEach(s -> unsubscribe(s, reason));
+        }
+    }
+
+    /**
+     * Run the subscription task now, without waiting for the next scheduled run. Used when new data is known to be
+     * available.
+     */
+    public void trigger(Subscription subscription) {
+        ScheduledTask scheduledTask = subscriptions.get(subscription);
+        if (scheduledTask != null) {
+            taskExecutor.submit(() -> {
+                try {
+                    scheduledTask.task.run();
+                } catch (Exception e) {
+                    logger.error("Error executing triggered task.", e);
+                }
+            });
+        }
     }
 
     public void unsubscribe(Subscription subscription, UnsubscribeReason reason) {
         logger.info("Unsubscribing: " + subscription + " Reason:" + reason);
-        ScheduledFuture scheduledFuture = subscriptions.remove(subscription);
+        ScheduledTask scheduledTask = subscriptions.remove(subscription);
         if (UnsubscribeReason.NO_DATA_FROM_SOURCE.equals(reason)) {
             subscription.runOnUnsubscribe();
         }
-        if (scheduledFuture != null) {
-            scheduledFuture.cancel(true);
+        if (scheduledTask != null) {
+            scheduledTask.cancel.run();
+            scheduledTask.onCancel.run();
             logger.info("Cancelled: " + subscription);
         }
     }
@@ -164,19 +312,41 @@ public class Subscriptions {
         NO_DATA_FROM_SOURCE, OTHER;
     }
 
+    private static class ScheduledTask {
+
+        private final Runnable cancel;
+
+        private final Runnable task;
+
+        private final Runnable onCancel;
+
+        ScheduledTask(Runnable cancel, Runnable task, Runnable onCancel) {
+            this.cancel = cancel;
+            this.task = task;
+            this.onCancel = onCancel;
+        }
+    }
+
     public static class TaskParameters<T> {
 
-        private T lastResult;
+        private Supplier<T> lastResult;
 
         private Consumer<T> resultConsumer;
 
         public TaskParameters(T lastResult, Consumer<T> resultConsumer) {
+            this(() -> lastResult, resultConsumer);
+        }
+
+        public TaskParameters(Supplier<T> lastResult, Consumer<T> resultConsumer) {
             this.lastResult = lastResult;
             this.resultConsumer = resultConsumer;
         }
 
+        /**
+         * @return the last result received by the subscription when this method is called
+         */
         public T getLastResult() {
-            return lastResult;
+            return lastResult.get();
         }
 
         public Consumer<T> getResultConsumer() {
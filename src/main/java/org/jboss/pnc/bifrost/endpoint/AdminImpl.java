@@ -0,0 +1,60 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.endpoint;
+
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.jboss.pnc.bifrost.source.db.QueryStats;
+
+import java.util.List;
+
+/**
+ * Diagnostics for the administrators.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+@Path("/admin")
+@RolesAllowed("pnc-users-admin")
+public class AdminImpl {
+
+    @Inject
+    QueryStats queryStats;
+
+    /**
+     * @return the latest source queries slower than <code>bifrost.slowQuery.threshold</code> with their plans
+     */
+    @Path("/slow-queries")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<QueryStats.SlowQuery> getSlowQueries() {
+        return queryStats.getSlowQueries();
+    }
+
+    @Path("/slow-queries")
+    @DELETE
+    public Response clearSlowQueries() {
+        queryStats.clearSlowQueries();
+        return Response.noContent().build();
+    }
+}
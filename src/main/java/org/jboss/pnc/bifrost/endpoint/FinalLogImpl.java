@@ -28,9 +28,15 @@ import org.hibernate.engine.jdbc.proxy.BlobProxy;
 import org.jboss.pnc.api.bifrost.dto.Checksums;
 import org.jboss.pnc.api.bifrost.rest.FinalLogRest;
 import org.jboss.pnc.api.constants.MDCHeaderKeys;
+import org.jboss.pnc.bifrost.common.ByteRange;
 import org.jboss.pnc.bifrost.common.ChecksumValidatingStream;
+import org.jboss.pnc.bifrost.endpoint.dto.FinalLogPartUpload;
 import org.jboss.pnc.bifrost.endpoint.dto.FinalLogUpload;
+import org.jboss.pnc.bifrost.endpoint.provider.DataProvider;
 import org.jboss.pnc.bifrost.source.db.FinalLog;
+import org.jboss.pnc.bifrost.source.db.FinalLogChecksums;
+import org.jboss.pnc.bifrost.source.db.FinalLogUploadPart;
+import org.jboss.pnc.bifrost.source.db.FinalLogUploadSession;
 import org.jboss.pnc.bifrost.source.db.LogEntry;
 import org.jboss.pnc.bifrost.source.db.LogEntryRepository;
 import org.jboss.pnc.bifrost.source.db.converter.ValueConverter;
@@ -39,6 +45,7 @@ import org.jboss.pnc.common.concurrent.Sequence;
 import org.jboss.pnc.common.pnc.LongBase32IdConverter;
 
 import jakarta.inject.Inject;
+import jakarta.persistence.LockModeType;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import jakarta.validation.ValidationException;
@@ -46,6 +53,7 @@ import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.POST;
+import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
@@ -60,19 +68,62 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 @PermitAll
 @Slf4j
 public class FinalLogImpl implements FinalLogRest {
+
+    private static final String RANGE = "Range";
+
+    private static final String CONTENT_RANGE = "Content-Range";
+
+    private static final String ACCEPT_RANGES = "Accept-Ranges";
+
     @ConfigProperty(name = "quarkus.http.limits.max-body-size")
     MemorySize maxPostValue;
 
+    /**
+     * Larger final logs are copied to a temporary file first instead of keeping the transaction open while the client
+     * reads the content.
+     */
+    @ConfigProperty(name = "bifrost.finalLog.tempFileThreshold", defaultValue = "1G")
+    MemorySize tempFileThreshold;
+
+    /**
+     * Store uploaded final logs gzip compressed. A compressed log can't be read at a position, a range request
+     * decompresses the log from its beginning up to the end of the range, so a tail read of a large log reads all of
+     * it.
+     */
+    @ConfigProperty(name = "bifrost.finalLog.compress", defaultValue = "false")
+    boolean compress;
+
+    /**
+     * Max number of parts of a multipart upload.
+     */
+    @ConfigProperty(name = "bifrost.finalLog.multipartUpload.maxParts", defaultValue = "10000")
+    int maxUploadParts;
+
     @Inject
     LogEntryRepository logEntryRepository;
 
+    @Inject
+    DataProvider dataProvider;
+
+    @Inject
+    FinalLogChecksums finalLogChecksums;
+
+    @Context
+    HttpHeaders httpHeaders;
+
     private final ValueConverter<Long> idConverter = new IdConverter();
 
     @Path("/upload")
@@ -103,13 +154,173 @@ public class FinalLogImpl implements FinalLogRest {
             throw new RuntimeException(e);
         }
 
-        long logUploadStarted = System.currentTimeMillis();
-        ChecksumValidatingStream stream = ChecksumValidatingStream.validate(fileInputStream, logUpload.getMd5sum());
-
         // Configure the proxy to read up to the max body post size. The proxy behaves well if the input
         // stream size is less than that size
-        finalLog.logContent = BlobProxy.generateProxy(stream, maxPostValue.asLongValue());
-        finalLog.persistAndFlush();
+        store(finalLog, fileInputStream, maxPostValue.asLongValue());
+
+        return "ok";
+    }
+
+    /**
+     * Start an upload of a final log in parts. The log file is not part of the request, the parts are uploaded by
+     * {@link #uploadFinalLogPart(long, int, FinalLogPartUpload)}.
+     *
+     * @return id of the upload
+     */
+    @Path("/upload/multipart")
+    @POST
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @RolesAllowed({ "pnc-app-bifrost-final-log-create", "pnc-users-admin" })
+    @Transactional
+    public String initiateMultipartUpload(@Valid FinalLogUpload logUpload, @Context HttpHeaders headers) {
+        FinalLogUploadSession session = new FinalLogUploadSession();
+        session.id = Sequence.nextId();
+        session.logEntry = getLogEntry(headers);
+        session.eventTimestamp = logUpload.getEndTime();
+        session.loggerName = logUpload.getLoggerName();
+        session.md5sum = logUpload.getMd5sum();
+        session.tags = logUpload.getTag();
+        session.created = OffsetDateTime.now();
+        session.persist();
+
+        log.info("Started multipart upload {} of {}.", session.id, session.loggerName);
+        return Long.toString(session.id);
+    }
+
+    /**
+     * Upload a part of the final log, the parts can be uploaded concurrently. A part uploaded again replaces the
+     * previous one so a failed part can be retried alone.
+     */
+    @Path("/upload/multipart/{uploadId}/{partNumber}")
+    @PUT
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @RolesAllowed({ "pnc-app-bifrost-final-log-create", "pnc-users-admin" })
+    @Transactional
+    public String uploadFinalLogPart(
+            @PathParam("uploadId") long uploadId,
+            @PathParam("partNumber") int partNumber,
+            @Valid FinalLogPartUpload partUpload) {
+        if (partNumber < 1 || partNumber > maxUploadParts) {
+            throw new BadRequestException("Part number must be between 1 and " + maxUploadParts + ".");
+        }
+        // the session is not completed nor aborted while its parts are uploaded
+        FinalLogUploadSession session = getUploadSession(uploadId, LockModeType.PESSIMISTIC_READ);
+
+        FinalLogUploadPart.deleteBySessionAndNumber(session, partNumber);
+
+        FinalLogUploadPart part = new FinalLogUploadPart();
+        part.id = Sequence.nextId();
+        part.session = session;
+        part.partNumber = partNumber;
+        part.md5sum = partUpload.getMd5sum();
+
+        ChecksumValidatingStream stream;
+        try {
+            stream = ChecksumValidatingStream
+                    .validate(new FileInputStream(partUpload.getLogfile().uploadedFile().toFile()), part.md5sum);
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        part.content = BlobProxy.generateProxy(stream, maxPostValue.asLongValue());
+        part.persistAndFlush();
+        try {
+            stream.validate();
+        } catch (ValidationException ex) {
+            throw new BadRequestException("The uploaded part has wrong checksums: " + ex.getMessage(), ex);
+        }
+        FinalLogUploadPart.getEntityManager().refresh(part);
+        part.size = stream.readSize();
+
+        return "ok";
+    }
+
+    /**
+     * Create the final log from the uploaded parts and validate the checksum of the whole log. The parts must be
+     * numbered from 1 without gaps.
+     */
+    @Path("/upload/multipart/{uploadId}/complete")
+    @POST
+    @Produces(MediaType.APPLICATION_JSON)
+    @RolesAllowed({ "pnc-app-bifrost-final-log-create", "pnc-users-admin" })
+    @Transactional
+    public String completeMultipartUpload(@PathParam("uploadId") long uploadId) {
+        // lock the session so that it is not completed twice and no part is uploaded meanwhile
+        FinalLogUploadSession session = getUploadSession(uploadId, LockModeType.PESSIMISTIC_WRITE);
+
+        List<FinalLogUploadPart> parts = FinalLogUploadPart.listBySession(session);
+        if (parts.isEmpty()) {
+            throw new BadRequestException("No parts were uploaded.");
+        }
+        long size = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            if (parts.get(i).partNumber != i + 1) {
+                throw new BadRequestException("Part " + (i + 1) + " is missing.");
+            }
+            size += parts.get(i).size;
+        }
+
+        FinalLog finalLog = new FinalLog();
+        finalLog.id = Sequence.nextId();
+        finalLog.logEntry = session.logEntry;
+        finalLog.eventTimestamp = session.eventTimestamp;
+        finalLog.loggerName = session.loggerName;
+        finalLog.md5sum = session.md5sum;
+        finalLog.tags = Set.of(session.tags.split(","));
+
+        store(finalLog, FinalLogUploadPart.concatenate(parts), size);
+        session.deleteWithParts();
+
+        log.info("Completed multipart upload {} of {} from {} parts.", uploadId, session.loggerName, parts.size());
+        return "ok";
+    }
+
+    @Path("/upload/multipart/{uploadId}")
+    @DELETE
+    @RolesAllowed({ "pnc-app-bifrost-final-log-create", "pnc-users-admin" })
+    @Transactional
+    public Response abortMultipartUpload(@PathParam("uploadId") long uploadId) {
+        getUploadSession(uploadId, LockModeType.PESSIMISTIC_WRITE).deleteWithParts();
+        return Response.noContent().build();
+    }
+
+    private FinalLogUploadSession getUploadSession(long uploadId, LockModeType lockMode) {
+        FinalLogUploadSession session = FinalLogUploadSession.findById(uploadId, lockMode);
+        if (session == null) {
+            throw new NotFoundException("Upload " + uploadId + " does not exist.");
+        }
+        return session;
+    }
+
+    /**
+     * Persist the final log with the given content, validating its MD5 checksum.
+     *
+     * @param maxLength max length of the uncompressed content
+     */
+    private void store(FinalLog finalLog, InputStream content, long maxLength) {
+        long logUploadStarted = System.currentTimeMillis();
+        ChecksumValidatingStream stream = ChecksumValidatingStream.validate(content, finalLog.md5sum);
+
+        java.nio.file.Path compressed = null;
+        try {
+            if (compress) {
+                compressed = compress(stream);
+                finalLog.compression = FinalLog.GZIP;
+                finalLog.storedSize = Files.size(compressed);
+                try (InputStream compressedContent = Files.newInputStream(compressed)) {
+                    finalLog.logContent = BlobProxy.generateProxy(compressedContent, finalLog.storedSize);
+                    finalLog.persistAndFlush();
+                }
+            } else {
+                finalLog.logContent = BlobProxy.generateProxy(stream, maxLength);
+                finalLog.persistAndFlush();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            deleteTempFile(compressed);
+        }
         long logUploadEnded = System.currentTimeMillis();
         if (log.isDebugEnabled()) {
             long duration = logUploadEnded - logUploadStarted;
@@ -129,8 +340,35 @@ public class FinalLogImpl implements FinalLogRest {
 
         FinalLog.getEntityManager().refresh(finalLog);
         finalLog.size = stream.readSize();
+        finalLog.setStoredChecksums(stream.getChecksums());
+        if (!finalLog.isCompressed()) {
+            finalLog.storedSize = finalLog.size;
+        }
+    }
 
-        return "ok";
+    /**
+     * @return temporary file with the gzip compressed content
+     */
+    private java.nio.file.Path compress(InputStream content) throws IOException {
+        java.nio.file.Path compressed = Files.createTempFile("final-log", ".gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed), FinalLog.BUFFER_SIZE)) {
+            content.transferTo(out);
+        } catch (IOException e) {
+            deleteTempFile(compressed);
+            throw e;
+        }
+        return compressed;
+    }
+
+    private void deleteTempFile(java.nio.file.Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Cannot delete temporary file {}.", file, e);
+        }
     }
 
     @Path("/{processContext}/delete")
@@ -169,17 +407,74 @@ public class FinalLogImpl implements FinalLogRest {
         }
 
         // if logs are not present, return status 204
-        if (FinalLog.getFinalLogsWithoutPreviousRetries(context, tag).isEmpty()) {
+        Collection<FinalLog> finalLogs = FinalLog.getFinalLogsWithoutPreviousRetries(context, tag);
+        if (finalLogs.isEmpty()) {
             return Response.noContent().build();
         }
 
+        long size = finalLogs.stream().mapToLong(finalLog -> finalLog.size).sum();
+        Optional<ByteRange> range = ByteRange.parse(httpHeaders.getHeaderString(RANGE), size);
+        if (range.isPresent() && !range.get().isSatisfiable()) {
+            return Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(CONTENT_RANGE, range.get().contentRange())
+                    .build();
+        }
+
+        if (range.isEmpty() && isStoredContentAccepted(finalLogs)) {
+            // the stored gzip content is sent as it is and decompressed by the client
+            long storedSize = finalLogs.iterator().next().storedSize;
+            return Response.ok()
+                    .header(HttpHeaders.CONTENT_ENCODING, FinalLog.GZIP)
+                    .header(HttpHeaders.CONTENT_LENGTH, storedSize)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    // ranges are served of the decompressed content, not of the encoded one
+                    .header(ACCEPT_RANGES, "none")
+                    .entity(
+                            (StreamingOutput) output -> dataProvider
+                                    .copyStoredFinalLogsToOutputStream(buildId, tag, output))
+                    .build();
+        }
+
+        Response.ResponseBuilder response;
+        long length;
+        if (range.isPresent()) {
+            length = range.get().getLength();
+            response = Response.status(Response.Status.PARTIAL_CONTENT)
+                    .header(CONTENT_RANGE, range.get().contentRange())
+                    .header(HttpHeaders.CONTENT_LENGTH, length);
+        } else {
+            length = size;
+            response = Response.ok();
+        }
+        response.header(ACCEPT_RANGES, "bytes").header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (length <= tempFileThreshold.asLongValue()) {
+            // the content is streamed from the database in a new transaction while the client reads it
+            return response.entity((StreamingOutput) output -> {
+                if (range.isPresent()) {
+                    dataProvider.copyFinalLogsToOutputStream(buildId, tag, range.get(), output);
+                } else {
+                    dataProvider.copyFinalLogsToOutputStream(buildId, tag, output);
+                }
+            }).build();
+        }
+
         // at this point, we are running in a transaction. We copy the blob content to a file
         File tempFile;
         try {
             tempFile = File.createTempFile("final-log", ".tmp");
 
             try (FileOutputStream fout = new FileOutputStream(tempFile)) {
-                FinalLog.copyFinalLogsToOutputStream(LongBase32IdConverter.toLong(buildId), tag, fout);
+                if (range.isPresent()) {
+                    FinalLog.copyFinalLogsToOutputStream(
+                            context,
+                            tag,
+                            range.get().getStart(),
+                            range.get().getLength(),
+                            fout);
+                } else {
+                    FinalLog.copyFinalLogsToOutputStream(context, tag, fout);
+                }
             } catch (SQLException e) {
                 throw new RuntimeException(e);
             }
@@ -187,7 +482,7 @@ public class FinalLogImpl implements FinalLogRest {
             throw new RuntimeException(e);
         }
 
-        return Response.ok().entity((StreamingOutput) output -> {
+        return response.entity((StreamingOutput) output -> {
             // at this point, we are not running in a transaction. We can however stream the content of the file to
             // the output
             try (FileInputStream fin = new FileInputStream(tempFile)) {
@@ -198,6 +493,31 @@ public class FinalLogImpl implements FinalLogRest {
         }).build();
     }
 
+    /**
+     * A single gzip part can be sent as it is stored. Concatenated parts would form a multi-member gzip stream, which
+     * is not decoded completely by all the clients.
+     */
+    private boolean isStoredContentAccepted(Collection<FinalLog> finalLogs) {
+        if (finalLogs.size() != 1) {
+            return false;
+        }
+        FinalLog finalLog = finalLogs.iterator().next();
+        if (!FinalLog.GZIP.equals(finalLog.compression) || finalLog.storedSize > tempFileThreshold.asLongValue()) {
+            return false;
+        }
+        String acceptEncoding = httpHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            if (parameters[0].trim().equalsIgnoreCase(FinalLog.GZIP)) {
+                return parameters.length == 1 || !parameters[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
     @Override
     public long getFinalLogSize(@PathParam("buildId") String buildId, @PathParam("tag") String tag) {
         return FinalLog.getFinalLogsWithoutPreviousRetries(LongBase32IdConverter.toLong(buildId), tag)
@@ -222,11 +542,11 @@ public class FinalLogImpl implements FinalLogRest {
 
         Checksums checksums;
         try {
-            checksums = FinalLog.getChecksums(id, tag);
+            checksums = finalLogChecksums.get(id, tag);
         } catch (SQLException | IOException e) {
             throw new RuntimeException(e);
         }
-        log.info("Calculated checksums for processContext: {} and tag: {}. {}", processContext, tag, checksums);
+        log.info("Got checksums for processContext: {} and tag: {}. {}", processContext, tag, checksums);
 
         return checksums;
     }
@@ -0,0 +1,109 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.endpoint;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the lines of a streaming response. The lines are encoded to UTF-8 into a buffer reused for the whole
+ * response, the buffer is written out when it is full or when the caller decides to flush, so the response is not
+ * written to the network line by line.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+class LineStreamWriter implements Closeable {
+
+    private final OutputStream outputStream;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private final ByteBuffer buffer;
+
+    private final long flushIntervalNanos;
+
+    private long lastFlush = System.nanoTime();
+
+    /**
+     * @param bufferSize number of bytes buffered before they are written to the output stream
+     * @param flushIntervalMillis max time the written text is kept in the buffer, see {@link #flushIfDue()}
+     */
+    LineStreamWriter(OutputStream outputStream, int bufferSize, long flushIntervalMillis) {
+        this.outputStream = outputStream;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.flushIntervalNanos = flushIntervalMillis * 1_000_000L;
+    }
+
+    public synchronized void write(String text) throws IOException {
+        CharBuffer in = CharBuffer.wrap(text);
+        encoder.reset();
+        CoderResult result;
+        while ((result = encoder.encode(in, buffer, true)).isOverflow()) {
+            writeBuffer();
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            writeBuffer();
+        }
+    }
+
+    /**
+     * Flush when the buffered text was not flushed for the flush interval.
+     */
+    public synchronized void flushIfDue() throws IOException {
+        if (System.nanoTime() - lastFlush >= flushIntervalNanos) {
+            flush();
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        writeBuffer();
+        outputStream.flush();
+        lastFlush = System.nanoTime();
+    }
+
+    /**
+     * Flush the buffered text and close the output stream.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            writeBuffer();
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        if (buffer.position() > 0) {
+            outputStream.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+    }
+}
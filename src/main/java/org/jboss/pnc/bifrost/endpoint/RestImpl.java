@@ -21,6 +21,13 @@ import io.micrometer.core.annotation.Timed;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
+import io.quarkus.virtual.threads.VirtualThreads;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.operators.multi.processors.SerializedProcessor;
+import io.smallrye.mutiny.operators.multi.processors.UnicastProcessor;
+import io.smallrye.mutiny.subscription.BackPressureStrategy;
+import io.smallrye.mutiny.subscription.Cancellable;
 import jakarta.annotation.PostConstruct;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
@@ -30,8 +37,10 @@ import org.jboss.pnc.api.bifrost.enums.Direction;
 import org.jboss.pnc.api.bifrost.enums.Format;
 import org.jboss.pnc.api.bifrost.rest.Bifrost;
 import org.jboss.pnc.api.dto.ComponentVersion;
+import org.jboss.pnc.bifrost.Config;
 import org.jboss.pnc.bifrost.common.DateUtil;
 import org.jboss.pnc.bifrost.common.Reference;
+import org.jboss.pnc.bifrost.common.scheduler.Credits;
 import org.jboss.pnc.bifrost.common.scheduler.Subscription;
 import org.jboss.pnc.bifrost.common.scheduler.TimeoutExecutor;
 import org.jboss.pnc.bifrost.constants.BuildInformationConstants;
@@ -41,27 +50,35 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import jakarta.inject.Inject;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.ServerErrorException;
+import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.StreamingOutput;
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
-import java.io.Writer;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 /**
@@ -76,9 +93,21 @@ public class RestImpl implements Bifrost {
 
     private static Logger logger = LoggerFactory.getLogger(RestImpl.class);
 
+    /**
+     * Connection probes are sent when no line was sent for this time.
+     */
+    private static final Duration PROBE_INTERVAL = Duration.ofSeconds(15);
+
     @Inject
     DataProvider dataProvider;
 
+    @Inject
+    Config config;
+
+    @Inject
+    @VirtualThreads
+    ExecutorService virtualThreads;
+
     private Map<String, ScheduledThreadPoolExecutor> probeExecutor = new ConcurrentHashMap<>();
 
     @Inject
@@ -110,7 +139,22 @@ public class RestImpl implements Bifrost {
 
         validateAndFixInputDate(afterLine);
 
-        ArrayBlockingQueue<Optional<Line>> queue = new ArrayBlockingQueue(1024);
+        if (!follow) {
+            StreamingOutput stream = outputStream -> writeLines(
+                    matchFilters,
+                    prefixFilters,
+                    afterLine,
+                    format,
+                    maxLines,
+                    tailLines,
+                    batchSize,
+                    outputStream);
+            return Response.ok(stream).build();
+        }
+
+        // the queue is bounded by the credits, the subscription is paused when the client does not keep up
+        BlockingQueue<Optional<Line>> queue = new LinkedBlockingQueue<>();
+        Credits credits = new Credits(config.getOutputCredits());
 
         Runnable addEndOfDataMarker = () -> {
             try {
@@ -121,15 +165,18 @@ public class RestImpl implements Bifrost {
             }
         };
 
-        Subscription subscription = new Subscription(addEndOfDataMarker);
+        Subscription subscription = new Subscription(addEndOfDataMarker, credits);
 
         StreamingOutput stream = outputStream -> {
+            LineStreamWriter writer = new LineStreamWriter(
+                    outputStream,
+                    config.getStreamOutputBufferSize(),
+                    config.getStreamOutputFlushMillis());
 
             Reference<TimeoutExecutor.Task> timeoutProbeTask = new Reference<>();
-            if (follow && timeoutProbeString != null && !timeoutProbeString.equals("")) {
+            if (timeoutProbeString != null && !timeoutProbeString.equals("")) {
                 TimeoutExecutor timeoutExecutor = new TimeoutExecutor(getExecutorService());
                 Runnable sendProbe = () -> {
-                    Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream));
                     try {
                         writer.write(timeoutProbeString);
                         writer.flush();
@@ -137,10 +184,11 @@ public class RestImpl implements Bifrost {
                         timeoutProbeTask.get().cancel();
                         warnCounter.increment();
                         logger.warn("Cannot send connection probe, client might closed the connection.", e);
-                        complete(subscription, outputStream);
+                        complete(subscription, writer);
                     }
                 };
-                timeoutProbeTask.set(timeoutExecutor.submit(sendProbe, 15000, TimeUnit.MILLISECONDS));
+                timeoutProbeTask
+                        .set(timeoutExecutor.submit(sendProbe, PROBE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS));
             }
 
             while (true) {
@@ -151,22 +199,20 @@ public class RestImpl implements Bifrost {
                         String message = line.asString(format);
                         logger.trace("Sending line: " + message);
 
-                        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream));
                         writer.write(handleNewLine(message));
-                        writer.flush();
+                        credits.release();
 
-                        if (line.isLast() && follow == false) { // when follow is true, the connection must be
-                                                                // terminated from
-                                                                // the client side
-                            timeoutProbeTask.ifPresent(t -> t.cancel());
-                            complete(subscription, outputStream);
-                            break;
+                        if (queue.isEmpty()) {
+                            // nothing else to coalesce with, the client should not wait for the next poll
+                            writer.flush();
+                        } else {
+                            writer.flushIfDue();
                         }
                         timeoutProbeTask.ifPresent(t -> t.update());
                     } else { // empty line indicating end of results
                         logger.info("Closing connection, no results.");
                         timeoutProbeTask.ifPresent(t -> t.cancel());
-                        complete(subscription, outputStream);
+                        complete(subscription, writer);
                         break;
                     }
                 } catch (IOException e) {
@@ -175,19 +221,19 @@ public class RestImpl implements Bifrost {
                             "Cannot write output. Client might closed the connection. Unsubscribing ... "
                                     + e.getMessage());
                     timeoutProbeTask.ifPresent(t -> t.cancel());
-                    complete(subscription, outputStream);
+                    complete(subscription, writer);
                     break;
                 } catch (InterruptedException e) {
                     errCounter.increment();
                     logger.error("Cannot read from queue.", e);
                     timeoutProbeTask.ifPresent(t -> t.cancel());
-                    complete(subscription, outputStream);
+                    complete(subscription, writer);
                     break;
                 }
             }
         };
 
-        fillQueueWithLines(
+        subscribeLines(
                 matchFilters,
                 prefixFilters,
                 afterLine,
@@ -195,13 +241,96 @@ public class RestImpl implements Bifrost {
                 tailLines,
                 batchSize,
                 batchDelay,
-                follow,
-                queue,
+                line -> queue.add(Optional.of(line)),
                 addEndOfDataMarker,
                 subscription);
         return Response.ok(stream).build();
     }
 
+    /**
+     * Follow the lines like {@link #getAllLines} with follow enabled. The lines are emitted as the subscription
+     * receives them and the connection probes by a timer, no thread is kept waiting for the lines of a client. The
+     * subscription is paused while the lines are not written out and it is cancelled when the client disconnects.
+     */
+    @GET
+    @Path("/follow")
+    @Produces(MediaType.TEXT_PLAIN)
+    public Multi<String> followLines(
+            @QueryParam("matchFilters") String matchFilters,
+            @QueryParam("prefixFilters") String prefixFilters,
+            @QueryParam("afterLine") Line afterLine,
+            @QueryParam("format") @DefaultValue("DEFAULT") Format format,
+            @QueryParam("tailLines") Integer tailLines,
+            @QueryParam("batchSize") Integer batchSize,
+            @QueryParam("batchDelay") Integer batchDelay,
+            @QueryParam("timeoutProbeString") String timeoutProbeString) {
+
+        validateAndFixInputDate(afterLine);
+
+        Credits credits = new Credits(config.getOutputCredits());
+
+        Multi<String> lines = Multi.createFrom().<Line> emitter(emitter -> {
+            Subscription subscription = new Subscription(emitter::complete, credits);
+            emitter.onTermination(() -> dataProvider.unsubscribe(subscription));
+            subscribeLines(
+                    matchFilters,
+                    prefixFilters,
+                    afterLine,
+                    null,
+                    tailLines,
+                    batchSize,
+                    batchDelay,
+                    emitter::emit,
+                    emitter::complete,
+                    subscription);
+        }, BackPressureStrategy.BUFFER)
+                // the tail lines are read when the client subscribes
+                .runSubscriptionOn(getReadExecutor())
+                .onItem()
+                .invoke(line -> credits.release())
+                .map(line -> handleNewLine(line.asString(format)));
+
+        if (timeoutProbeString == null || timeoutProbeString.isEmpty()) {
+            return lines;
+        }
+        return withProbes(lines, PROBE_INTERVAL, timeoutProbeString);
+    }
+
+    /**
+     * Merge the connection probes into the lines, a probe is sent when no line was sent for the interval. The probes
+     * stop when the lines terminate.
+     */
+    static Multi<String> withProbes(Multi<String> lines, Duration interval, String probe) {
+        return Multi.createFrom().deferred(() -> {
+            AtomicLong lastSent = new AtomicLong(System.nanoTime());
+            SerializedProcessor<String, String> probes = UnicastProcessor.<String> create().serialized();
+            Cancellable ticks = Multi.createFrom()
+                    .ticks()
+                    .every(interval)
+                    .onOverflow()
+                    .drop()
+                    .filter(tick -> System.nanoTime() - lastSent.get() >= interval.toNanos())
+                    .subscribe()
+                    .with(tick -> probes.onNext(probe));
+            // the merge completes only when both complete, the probes end with the lines
+            Multi<String> sentLines = lines.onItem()
+                    .invoke(line -> lastSent.set(System.nanoTime()))
+                    .onTermination()
+                    .invoke(() -> {
+                        ticks.cancel();
+                        probes.onComplete();
+                    });
+            return Multi.createBy().merging().streams(sentLines, probes);
+        });
+    }
+
+    /**
+     * The reads run on virtual threads only when they are enabled, the same as the subscription tasks.
+     */
+    private Executor getReadExecutor() {
+        return config.isVirtualThreads() ? virtualThreads : Infrastructure.getDefaultWorkerPool();
+    }
+
     private String handleNewLine(String message) {
         if (message == null || message.isEmpty()) {
             return "\n";
@@ -214,9 +343,90 @@ public class RestImpl implements Bifrost {
         return message.concat(System.lineSeparator());
     }
 
+    /**
+     * Write the lines without following them, the whole range is read by a single read through the cursor of the
+     * source. The read is blocked while the client does not take the output.
+     */
+    private void writeLines(
+            String matchFilters,
+            String prefixFilters,
+            Line afterLine,
+            Format format,
+            Integer maxLines,
+            Integer tailLines,
+            Integer batchSize,
+            OutputStream outputStream) throws IOException {
+        LineStreamWriter writer = new LineStreamWriter(
+                outputStream,
+                config.getStreamOutputBufferSize(),
+                config.getStreamOutputFlushMillis());
+        Consumer<Line> onLine = line -> {
+            try {
+                writer.write(handleNewLine(line.asString(format)));
+                writer.flushIfDue();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        try {
+            List<Line> tail = tailLines != null && tailLines > 0 ? readTail(matchFilters, prefixFilters, tailLines)
+                    : List.of();
+            tail.forEach(onLine);
+            Optional<Line> readAfter = tail.isEmpty() ? Optional.ofNullable(afterLine)
+                    : Optional.of(tail.get(tail.size() - 1));
+            Optional<Integer> remainingLines = Optional.ofNullable(maxLines).map(max -> max - tail.size());
+            if (remainingLines.isEmpty() || remainingLines.get() > 0) {
+                dataProvider.get(
+                        matchFilters,
+                        prefixFilters,
+                        readAfter,
+                        Direction.ASC,
+                        remainingLines,
+                        Optional.ofNullable(batchSize),
+                        onLine);
+            }
+        } catch (UncheckedIOException e) {
+            warnCounter.increment();
+            logger.warn("Cannot write output. Client might closed the connection. " + e.getCause().getMessage());
+        } finally {
+            close(writer);
+        }
+    }
+
+    /**
+     * @return the last lines in ascending order, no lines when they can't be read
+     */
+    private List<Line> readTail(String matchFilters, String prefixFilters, int tailLines) {
+        List<Line> tail = new ArrayList<>();
+        try {
+            dataProvider.get(
+                    matchFilters,
+                    prefixFilters,
+                    Optional.empty(),
+                    Direction.DESC,
+                    Optional.of(tailLines),
+                    Optional.of(tailLines),
+                    line -> {
+                        if (line != null) {
+                            tail.add(line);
+                        }
+                    });
+        } catch (Exception e) {
+            warnCounter.increment();
+            logger.error("Failed to fetch tail lines.", e);
+            return List.of();
+        }
+        Collections.reverse(tail);
+        return tail;
+    }
+
+    /**
+     * Pass the lines to the output as they are read and then as they are stored, the subscription ends once the max
+     * lines were passed or when it is unsubscribed.
+     */
     @Timed
     @WithSpan()
-    protected void fillQueueWithLines(
+    protected void subscribeLines(
             String matchFilters,
             String prefixFilters,
             Line afterLine,
@@ -224,55 +434,31 @@ public class RestImpl implements Bifrost {
             Integer tailLines,
             Integer batchSize,
             Integer batchDelay,
-            boolean follow,
-            ArrayBlockingQueue<Optional<Line>> queue,
+            Consumer<Line> output,
             Runnable addEndOfDataMarker,
             Subscription subscription) {
         final Reference<Line> effectiveAfterLine = new Reference<>(afterLine);
         int[] receivedLines = { 0 };
 
         if (tailLines != null && tailLines > 0) {
-            List<Line> tailBuffer = new ArrayList<>();
-            try {
-                dataProvider.get(
-                        matchFilters,
-                        prefixFilters,
-                        Optional.empty(),
-                        Direction.DESC,
-                        Optional.of(tailLines),
-                        Optional.of(tailLines),
-                        tailBuffer::add);
-
-                Collections.reverse(tailBuffer);
-
-                for (Line line : tailBuffer) {
-                    if (line != null) {
-                        boolean added = queue.offer(Optional.of(line), 5, TimeUnit.SECONDS);
-                        if (added) {
-                            receivedLines[0]++;
-                        } else {
-                            warnCounter.increment();
-                            logger.warn("Queue full while buffering tail lines.");
-                        }
-                    }
-                }
-
-                if (!tailBuffer.isEmpty()) {
-                    effectiveAfterLine.set(tailBuffer.get(tailBuffer.size() - 1));
-                    logger.debug(
-                            "Tail loaded. Subscription will start after line ID: " + effectiveAfterLine.get().getId());
-                }
-            } catch (Exception e) {
-                warnCounter.increment();
-                logger.error("Failed to fetch tail lines. Falling back to standard subscription.", e);
+            List<Line> tail = readTail(matchFilters, prefixFilters, tailLines);
+            for (Line line : tail) {
+                subscription.getCredits().take();
+                output.accept(line);
+                receivedLines[0]++;
+            }
+            if (!tail.isEmpty()) {
+                effectiveAfterLine.set(tail.get(tail.size() - 1));
+                logger.debug("Tail loaded. Subscription will start after line ID: " + effectiveAfterLine.get().getId());
             }
         }
 
         Consumer<Line> onLine = line -> {
             try {
                 if (line != null) {
-                    logger.trace("Adding line to output queue: " + line.asString());
-                    queue.offer(Optional.of(line), 5, TimeUnit.SECONDS); // TODO
+                    logger.trace("Adding line to output: " + line.asString());
+                    subscription.getCredits().take();
+                    output.accept(line);
                     receivedLines[0]++;
 
                     if (maxLines != null && receivedLines[0] >= maxLines) {
@@ -283,13 +469,6 @@ public class RestImpl implements Bifrost {
                 } else {
                     logger.debug("Received null line.");
                 }
-
-                if (follow == false && (line == null || line.isLast())) {
-                    logger.debug("Received last line or no results, unsubscribing and closing ...");
-                    // signal connection close
-                    addEndOfDataMarker.run();
-                    dataProvider.unsubscribe(subscription);
-                }
             } catch (Exception e) {
                 warnCounter.increment();
                 logger.warn("Unsubscribing due to the exception.", e);
@@ -305,17 +484,22 @@ public class RestImpl implements Bifrost {
                 subscription,
                 Optional.ofNullable(maxLines),
                 Optional.ofNullable(batchSize),
-                Optional.ofNullable(batchDelay));
+                Optional.ofNullable(batchDelay),
+                true);
     }
 
     private ScheduledThreadPoolExecutor getExecutorService() {
         return probeExecutor.computeIfAbsent("INSTANCE", k -> new ScheduledThreadPoolExecutor(1));
     }
 
-    private void complete(Subscription subscription, OutputStream outputStream) {
+    private void complete(Subscription subscription, LineStreamWriter writer) {
         dataProvider.unsubscribe(subscription);
+        close(writer);
+    }
+
+    private void close(LineStreamWriter writer) {
         try {
-            outputStream.close();
+            writer.close();
         } catch (IOException e) {
             warnCounter.increment();
             logger.warn("Cannot close output stream.", e);
@@ -22,17 +22,26 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.opentelemetry.instrumentation.annotations.SpanAttribute;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
+import io.quarkus.narayana.jta.runtime.TransactionConfiguration;
 import jakarta.annotation.PostConstruct;
 import org.jboss.pnc.api.bifrost.dto.Line;
 import org.jboss.pnc.api.bifrost.enums.Direction;
 import org.jboss.pnc.bifrost.Config;
+import org.jboss.pnc.bifrost.common.ByteRange;
+import org.jboss.pnc.bifrost.common.LineOrder;
 import org.jboss.pnc.bifrost.common.Produced;
 import org.jboss.pnc.bifrost.common.Reference;
 import org.jboss.pnc.bifrost.common.scheduler.BackOffRunnableConfig;
+import org.jboss.pnc.bifrost.common.scheduler.SharedTask;
 import org.jboss.pnc.bifrost.common.scheduler.Subscription;
 import org.jboss.pnc.bifrost.common.scheduler.Subscriptions;
 import org.jboss.pnc.bifrost.source.Source;
+import org.jboss.pnc.bifrost.source.SourceReadLimiter;
+import org.jboss.pnc.bifrost.source.db.FinalLog;
+import org.jboss.pnc.bifrost.source.dispatch.LineDispatcher;
+import org.jboss.pnc.bifrost.source.dispatch.LineFeed;
 import org.jboss.pnc.common.Strings;
+import org.jboss.pnc.common.pnc.LongBase32IdConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,8 +50,16 @@ import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
@@ -68,6 +85,15 @@ public class DataProvider {
     @Inject
     Source source;
 
+    @Inject
+    SourceReadLimiter sourceReadLimiter;
+
+    @Inject
+    LineDispatcher lineDispatcher;
+
+    @Inject
+    RecentLinesCache recentLinesCache;
+
     @Inject
     MeterRegistry registry;
 
@@ -86,6 +112,9 @@ public class DataProvider {
         subscriptions.unsubscribe(subscription);
     }
 
+    /**
+     * @param follow false for the subscriptions which end with the last line, they are not grouped with the others
+     */
     @Timed
     @WithSpan()
     public void subscribe(
@@ -96,39 +125,275 @@ public class DataProvider {
             @SpanAttribute(value = "subscription") Subscription subscription,
             @SpanAttribute(value = "maxLines") Optional<Integer> maxLines,
             @SpanAttribute(value = "batchSize") Optional<Integer> batchSize,
-            @SpanAttribute(value = "batchDelay") Optional<Integer> batchDelay) {
+            @SpanAttribute(value = "batchDelay") Optional<Integer> batchDelay,
+            @SpanAttribute(value = "follow") boolean follow) {
 
         final int[] fetchedLines = { 0 };
 
+        // when live dispatch is enabled, the source is read only until the subscription catches up, new lines are
+        // then taken from the feed, a subscription which does not follow ends before
+        Optional<LineFeed> feed = follow ? registerFeed(matchFilters, prefixFilters, subscription) : Optional.empty();
+        final boolean[] caughtUp = { false };
+        final long[] lastSourceRead = { 0L };
+        ReentrantLock runLock = new ReentrantLock();
+        AtomicBoolean skippedRun = new AtomicBoolean();
+
         Consumer<Subscriptions.TaskParameters<Line>> searchTask = (parameters) -> {
-            Optional<Line> lastResult = Optional.ofNullable(parameters.getLastResult());
-            Consumer<Line> onLineInternal = line -> {
-                if (line != null) {
-                    fetchedLines[0]++;
+            if (!runLock.tryLock()) {
+                // triggered while the scheduled run is in progress
+                skippedRun.set(true);
+                return;
+            }
+            try {
+                // read under the lock, the cursor is moved by the run that held it
+                Optional<Line> lastResult = Optional.ofNullable(parameters.getLastResult());
+                Consumer<Line> onLineInternal = line -> {
+                    if (line != null) {
+                        fetchedLines[0]++;
+                    }
+                    parameters.getResultConsumer().accept(line);
+                };
+                if (feed.isPresent() && feed.get().resetIfOverflowed()) {
+                    logger.warn("Live feed overflowed, subscription " + subscription + " is catching up from source.");
+                    caughtUp[0] = false;
+                }
+                if (caughtUp[0] && isReconcileDue(lastSourceRead[0])) {
+                    // pick up the lines ingested by other instances
+                    caughtUp[0] = false;
                 }
-                parameters.getResultConsumer().accept(line);
-            };
+                if (feed.isPresent() && caughtUp[0]) {
+                    // a single run does not pass more lines than the consumer can buffer
+                    int fetchSize = Math.min(
+                            getFetchSize(fetchedLines[0], maxLines, batchSize),
+                            subscription.getCredits().available());
+                    readFromFeed(feed.get(), fetchSize, lastResult, onLineInternal);
+                } else if (!caughtUp[0]) {
+                    lastSourceRead[0] = System.currentTimeMillis();
+                    logger.debug(
+                            "Catching up from source, subscription " + subscription + " already fetched "
+                                    + fetchedLines[0] + " lines.");
+                    caughtUp[0] = catchUp(
+                            matchFilters,
+                            prefixFilters,
+                            subscription,
+                            maxLines,
+                            fetchedLines,
+                            batchSize,
+                            lastResult,
+                            onLineInternal);
+                    logger.debug(
+                            "Catch up from source completed, subscription " + subscription + " fetched lines: "
+                                    + fetchedLines[0]);
+                } else {
+                    // the source is polled when there is no feed, a poll not reaching the last line falls behind
+                    lastSourceRead[0] = System.currentTimeMillis();
+                    caughtUp[0] = false;
+                    int fetchSize = Math.min(
+                            getFetchSize(fetchedLines[0], maxLines, batchSize),
+                            subscription.getCredits().available());
+                    readFromSource(matchFilters, prefixFilters, fetchSize, lastResult, line -> {
+                        if (line == null || line.isLast()) {
+                            caughtUp[0] = true;
+                        }
+                        onLineInternal.accept(line);
+                    });
+                }
+            } catch (Exception e) {
+                errCounter.increment();
+                logger.error("Error reading data from source.", e);
+                subscriptions.unsubscribe(subscription, Subscriptions.UnsubscribeReason.NO_DATA_FROM_SOURCE);
+            } finally {
+                runLock.unlock();
+            }
+            if (skippedRun.getAndSet(false)) {
+                subscriptions.trigger(subscription);
+            }
+        };
+
+        if (follow && feed.isEmpty() && maxLines.isEmpty() && config.isCoalescePolls()) {
+            // the subscription polls on its own only until it catches up with the others
+            subscriptions.subscribeShared(
+                    subscription,
+                    getSharedTask(matchFilters, prefixFilters, batchSize, batchDelay),
+                    searchTask,
+                    afterLine,
+                    onLine,
+                    backOffRunnableConfig,
+                    batchDelay);
+            return;
+        }
+
+        subscriptions.subscribe(
+                subscription,
+                searchTask,
+                afterLine,
+                onLine,
+                backOffRunnableConfig,
+                batchDelay,
+                () -> feed.ifPresent(lineDispatcher::unregister));
+    }
+
+    /**
+     * Read through the cursor of the source until the last line, as long as the consumer can take the lines. A single
+     * read passes up to the lines the consumer can buffer, the next one continues once they are taken.
+     *
+     * @return true when the last line was read
+     */
+    private boolean catchUp(
+            String matchFilters,
+            String prefixFilters,
+            Subscription subscription,
+            Optional<Integer> maxLines,
+            int[] fetchedLines,
+            Optional<Integer> batchSize,
+            Optional<Line> lastResult,
+            Consumer<Line> onLine) throws IOException {
+        Reference<Line> cursor = new Reference<>(lastResult.orElse(null));
+        boolean[] caughtUp = { false };
+        Consumer<Line> onLineInternal = line -> {
+            if (line != null) {
+                cursor.set(line);
+            }
+            if (line == null || line.isLast()) {
+                caughtUp[0] = true;
+            }
+            onLine.accept(line);
+        };
+        int readLines;
+        do {
+            int maxReadLines = Math.min(
+                    maxLines.map(max -> max - fetchedLines[0]).orElse(Integer.MAX_VALUE),
+                    subscription.getCredits().available());
+            if (maxReadLines < 1) {
+                return false;
+            }
+            int fetchedBefore = fetchedLines[0];
+            streamFromSource(
+                    matchFilters,
+                    prefixFilters,
+                    maxReadLines,
+                    batchSize.orElse(config.getDefaultSourceFetchSize()),
+                    Optional.ofNullable(cursor.get()),
+                    onLineInternal);
+            readLines = fetchedLines[0] - fetchedBefore;
+        } while (readLines > 0 && !caughtUp[0]);
+        return caughtUp[0];
+    }
+
+    private SharedTask<Line> getSharedTask(
+            String matchFilters,
+            String prefixFilters,
+            Optional<Integer> batchSize,
+            Optional<Integer> batchDelay) {
+        String groupKey = getFilterKey(matchFilters, prefixFilters) + " batchSize:" + batchSize.orElse(null)
+                + " batchDelay:" + batchDelay.orElse(null);
+
+        Consumer<Subscriptions.TaskParameters<Line>> groupTask = (parameters) -> {
             try {
-                logger.debug(
-                        "Reading from source, subscription " + subscription + " already fetched " + fetchedLines[0]
-                                + " lines.");
+                logger.debug("Reading from source, subscription group " + groupKey + ".");
                 readFromSource(
                         matchFilters,
                         prefixFilters,
-                        getFetchSize(fetchedLines[0], maxLines, batchSize),
-                        lastResult,
-                        onLineInternal);
-                logger.debug(
-                        "Read from source completed, subscription " + subscription + " fetched lines: "
-                                + fetchedLines[0]);
+                        getFetchSize(0, Optional.empty(), batchSize),
+                        Optional.ofNullable(parameters.getLastResult()),
+                        parameters.getResultConsumer());
             } catch (Exception e) {
                 errCounter.increment();
                 logger.error("Error reading data from source.", e);
-                subscriptions.unsubscribe(subscription, Subscriptions.UnsubscribeReason.NO_DATA_FROM_SOURCE);
+                subscriptions.unsubscribeGroup(groupKey, Subscriptions.UnsubscribeReason.NO_DATA_FROM_SOURCE);
             }
         };
+        return new SharedTask<>(
+                groupKey,
+                groupTask,
+                LineOrder.INSTANCE,
+                Line::isLast,
+                line -> line.cloneBuilder().build());
+    }
 
-        subscriptions.subscribe(subscription, searchTask, afterLine, onLine, backOffRunnableConfig, batchDelay);
+    private static String getFilterKey(String matchFilters, String prefixFilters) {
+        return "match:" + normalizeFilters(matchFilters) + " prefix:" + normalizeFilters(prefixFilters);
+    }
+
+    /**
+     * Filters in a stable form, so the same filters written in a different order give the same key.
+     */
+    private static String normalizeFilters(String filters) {
+        Map<String, List<String>> normalized = new TreeMap<>();
+        Strings.toMap(filters)
+                .forEach(
+                        (field, values) -> normalized
+                                .put(field, values.stream().distinct().sorted().collect(Collectors.toList())));
+        return normalized.toString();
+    }
+
+    private boolean isReconcileDue(long lastSourceRead) {
+        long reconcileMillis = config.getLiveDispatchReconcileMillis();
+        return reconcileMillis > 0 && System.currentTimeMillis() - lastSourceRead >= reconcileMillis;
+    }
+
+    private Optional<LineFeed> registerFeed(String matchFilters, String prefixFilters, Subscription subscription) {
+        if (!config.isLiveDispatch()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(
+                    lineDispatcher.register(
+                            Strings.toMap(matchFilters),
+                            Strings.toMap(prefixFilters),
+                            () -> subscriptions.trigger(subscription)));
+        } catch (Exception e) {
+            logger.warn("Cannot register live feed, subscription " + subscription + " falls back to polling.", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Pass the lines published since the last run. Lines not after the last result were already read from the source
+     * during catch-up and are skipped. The last passed line is marked as last, there is no more data at the moment.
+     */
+    private void readFromFeed(LineFeed feed, int fetchSize, Optional<Line> lastResult, Consumer<Line> onLine) {
+        if (fetchSize < 1) {
+            return;
+        }
+        Reference<Line> cursor = new Reference<>(lastResult.orElse(null));
+        List<Line> lines = new ArrayList<>();
+        feed.drain(fetchSize, line -> {
+            if (LineOrder.isAfter(line, cursor.get())) {
+                lines.add(line);
+                cursor.set(line);
+            }
+        });
+        for (int i = 0; i < lines.size(); i++) {
+            if (i == lines.size() - 1) {
+                onLine.accept(lines.get(i).cloneBuilder().last(true).build());
+            } else {
+                onLine.accept(lines.get(i));
+            }
+        }
+    }
+
+    /**
+     * Read the lines after <code>lastResult</code> through the cursor of the source, the last line is marked as last
+     * and null is passed when there are no results.
+     */
+    @WithSpan()
+    protected void streamFromSource(
+            @SpanAttribute(value = "matchFilters") String matchFilters,
+            @SpanAttribute(value = "prefixFilters") String prefixFilters,
+            @SpanAttribute(value = "maxLines") int maxLines,
+            @SpanAttribute(value = "fetchSize") int fetchSize,
+            @SpanAttribute(value = "lastResult") Optional<Line> lastResult,
+            @SpanAttribute(value = "onLine") Consumer<Line> onLine) throws IOException {
+        sourceReadLimiter.run(
+                () -> source.stream(
+                        Strings.toMap(matchFilters),
+                        Strings.toMap(prefixFilters),
+                        lastResult,
+                        Direction.ASC,
+                        Optional.of(maxLines),
+                        fetchSize,
+                        onLine));
     }
 
     /**
@@ -144,13 +409,52 @@ public class DataProvider {
             @SpanAttribute(value = "fetchSize") int fetchSize,
             @SpanAttribute(value = "lastResult") Optional<Line> lastResult,
             @SpanAttribute(value = "onLine") Consumer<Line> onLine) throws IOException {
-        source.get(
-                Strings.toMap(matchFilters),
-                Strings.toMap(prefixFilters),
-                lastResult,
-                Direction.ASC,
-                fetchSize,
-                onLine);
+        Map<String, List<String>> match = Strings.toMap(matchFilters);
+        Map<String, List<String>> prefix = Strings.toMap(prefixFilters);
+
+        Optional<RecentLines> cached = Optional.empty();
+        if (lastResult.isPresent() && recentLinesCache.isEnabled()) {
+            cached = recentLinesCache.get(getFilterKey(matchFilters, prefixFilters));
+        }
+        Optional<List<Line>> cachedLines = cached.flatMap(c -> c.after(lastResult.get(), fetchSize));
+        if (cachedLines.isEmpty()) {
+            sourceReadLimiter.run(() -> source.get(match, prefix, lastResult, Direction.ASC, fetchSize, onLine));
+            return;
+        }
+        recentLinesCache.hit();
+
+        // the source is read only for the lines newer than the cached ones
+        List<Line> lines = cachedLines.get();
+        for (int i = 0; i < lines.size() - 1; i++) {
+            onLine.accept(lines.get(i));
+        }
+        // the newest cached line is passed once it is known if it is the last one
+        Reference<Line> pending = new Reference<>(lines.isEmpty() ? null : lines.get(lines.size() - 1));
+        Line readAfter = pending.get() != null ? pending.get() : lastResult.get();
+        int remaining = fetchSize - lines.size();
+        if (remaining < 1) {
+            onLine.accept(pending.get());
+            return;
+        }
+        List<Line> newLines = new ArrayList<>();
+        Consumer<Line> onNewLine = line -> {
+            if (line != null) {
+                pending.ifPresent(onLine);
+                pending.set(null);
+                newLines.add(line);
+                onLine.accept(line);
+            }
+        };
+        sourceReadLimiter
+                .run(() -> source.get(match, prefix, Optional.of(readAfter), Direction.ASC, remaining, onNewLine));
+        if (newLines.isEmpty()) {
+            if (pending.get() != null) {
+                onLine.accept(pending.get().cloneBuilder().last(true).build());
+            } else {
+                onLine.accept(null);
+            }
+        }
+        cached.get().append(readAfter, newLines);
     }
 
     /**
@@ -167,41 +471,172 @@ public class DataProvider {
             @SpanAttribute(value = "batchSize") Optional<Integer> batchSize,
             @SpanAttribute(value = "onLine") Consumer<Line> onLine) throws IOException {
 
-        final Reference<Line> lastLine;
-        if (afterLine.isPresent()) {
-            // Make sure line is marked as last. Being non last will result in endless loop in case of no results.
-            lastLine = new Reference<>(afterLine.get().cloneBuilder().last(true).build());
+        if (Direction.DESC.equals(direction) && afterLine.isEmpty() && maxLines.isPresent()
+                && recentLinesCache.isEnabled() && maxLines.get() <= recentLinesCache.getCapacity()) {
+            getTail(matchFilters, prefixFilters, maxLines.get(), batchSize, onLine);
         } else {
-            lastLine = new Reference<>();
+            read(matchFilters, prefixFilters, afterLine, direction, maxLines, batchSize, onLine);
         }
+    }
 
-        final int[] fetchedLines = { 0 };
-        Consumer<Line> onLineInternal = line -> {
-            if (line != null) {
-                fetchedLines[0]++;
-                onLine.accept(line);
-            }
-            lastLine.set(line);
-        };
-        do {
-            int fetchSize = getFetchSize(fetchedLines[0], maxLines, batchSize);
-            if (fetchSize < 1) {
-                break;
+    /**
+     * Read the newest lines, from the cache if it holds enough of them. The cache is brought up to date by reading the
+     * lines after its newest one first.
+     */
+    private void getTail(
+            String matchFilters,
+            String prefixFilters,
+            int tailLines,
+            Optional<Integer> batchSize,
+            Consumer<Line> onLine) throws IOException {
+        String filterKey = getFilterKey(matchFilters, prefixFilters);
+        Optional<RecentLines> cached = recentLinesCache.get(filterKey);
+        if (cached.isPresent() && refresh(cached.get(), matchFilters, prefixFilters)) {
+            Optional<List<Line>> tail = cached.get().tail(tailLines);
+            if (tail.isPresent()) {
+                recentLinesCache.hit();
+                tail.get().forEach(onLine);
+                return;
             }
-            source.get(
-                    Strings.toMap(matchFilters),
-                    Strings.toMap(prefixFilters),
-                    Optional.ofNullable(lastLine.get()),
-                    direction,
-                    fetchSize,
-                    onLineInternal);
-        } while (lastLine.get() != null && !lastLine.get().isLast());
+        }
+        recentLinesCache.miss();
+
+        List<Line> lines = new ArrayList<>();
+        Line last = read(
+                matchFilters,
+                prefixFilters,
+                Optional.empty(),
+                Direction.DESC,
+                Optional.of(tailLines),
+                batchSize,
+                line -> {
+                    lines.add(line);
+                    onLine.accept(line);
+                });
+        recentLinesCache.getOrCreate(filterKey).seed(lines, last == null || last.isLast());
+    }
+
+    /**
+     * @return false if the lines can't be appended to the cache, it was cleared and must be read again
+     */
+    private boolean refresh(RecentLines recentLines, String matchFilters, String prefixFilters) throws IOException {
+        Optional<Line> newest = recentLines.newest();
+        if (newest.isEmpty() && !recentLines.isComplete()) {
+            return false;
+        }
+        List<Line> newLines = new ArrayList<>();
+        boolean[] endOfData = { false };
+        sourceReadLimiter.run(
+                () -> source.get(
+                        Strings.toMap(matchFilters),
+                        Strings.toMap(prefixFilters),
+                        newest,
+                        Direction.ASC,
+                        recentLines.getCapacity(),
+                        line -> {
+                            if (line != null) {
+                                newLines.add(line);
+                            }
+                            if (line == null || line.isLast()) {
+                                endOfData[0] = true;
+                            }
+                        }));
+        if (!endOfData[0]) {
+            // more new lines than the cache can hold
+            recentLines.clear();
+            return false;
+        }
+        recentLines.append(newest.orElse(null), newLines);
+        return true;
     }
 
+    /**
+     * @return the last received line, null if there were no results
+     */
+    private Line read(
+            String matchFilters,
+            String prefixFilters,
+            Optional<Line> afterLine,
+            Direction direction,
+            Optional<Integer> maxLines,
+            Optional<Integer> batchSize,
+            Consumer<Line> onLine) throws IOException {
+        final Reference<Line> lastReceived = new Reference<>();
+        sourceReadLimiter.run(
+                () -> source.stream(
+                        Strings.toMap(matchFilters),
+                        Strings.toMap(prefixFilters),
+                        afterLine,
+                        direction,
+                        maxLines,
+                        batchSize.orElse(config.getDefaultSourceFetchSize()),
+                        line -> {
+                            if (line != null) {
+                                lastReceived.set(line);
+                                onLine.accept(line);
+                            }
+                        }));
+        return lastReceived.get();
+    }
+
+    /**
+     * Copy the final log content from the database directly to the output stream. The transaction is open until the
+     * content is written, its timeout can be set by <code>bifrost.finalLog.streamTransactionTimeout</code>.
+     */
     @Timed
     @WithSpan()
     @Transactional
-    public void copyFinalLogsToOutputStream(String buildId, String tag, OutputStream outputStream) {
+    @TransactionConfiguration(timeout = 3600, timeoutFromConfigProperty = "bifrost.finalLog.streamTransactionTimeout")
+    public void copyFinalLogsToOutputStream(String buildId, String tag, OutputStream outputStream)
+            throws IOException {
+        try {
+            FinalLog.copyFinalLogsToOutputStream(LongBase32IdConverter.toLong(buildId), tag, outputStream);
+        } catch (SQLException e) {
+            errCounter.increment();
+            throw new IOException("Cannot read final log content.", e);
+        }
+    }
+
+    /**
+     * Copy the final log content as it is stored, without decompressing it.
+     */
+    @Timed
+    @WithSpan()
+    @Transactional
+    @TransactionConfiguration(timeout = 3600, timeoutFromConfigProperty = "bifrost.finalLog.streamTransactionTimeout")
+    public void copyStoredFinalLogsToOutputStream(String buildId, String tag, OutputStream outputStream)
+            throws IOException {
+        try {
+            FinalLog.copyStoredFinalLogsToOutputStream(LongBase32IdConverter.toLong(buildId), tag, outputStream);
+        } catch (SQLException e) {
+            errCounter.increment();
+            throw new IOException("Cannot read final log content.", e);
+        }
+    }
+
+    /**
+     * Copy the bytes of the range of the final log content from the database directly to the output stream.
+     */
+    @Timed
+    @WithSpan()
+    @Transactional
+    @TransactionConfiguration(timeout = 3600, timeoutFromConfigProperty = "bifrost.finalLog.streamTransactionTimeout")
+    public void copyFinalLogsToOutputStream(
+            String buildId,
+            String tag,
+            ByteRange range,
+            OutputStream outputStream) throws IOException {
+        try {
+            FinalLog.copyFinalLogsToOutputStream(
+                    LongBase32IdConverter.toLong(buildId),
+                    tag,
+                    range.getStart(),
+                    range.getLength(),
+                    outputStream);
+        } catch (SQLException e) {
+            errCounter.increment();
+            throw new IOException("Cannot read final log content.", e);
+        }
     }
 
     private int getFetchSize(int fetchedLines, Optional<Integer> maxLines, Optional<Integer> batchSize) {
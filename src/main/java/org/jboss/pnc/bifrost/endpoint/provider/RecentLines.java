@@ -0,0 +1,167 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.endpoint.provider;
+
+import org.jboss.pnc.api.bifrost.dto.Line;
+import org.jboss.pnc.bifrost.common.LineOrder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Bounded buffer of the newest lines matching a filter. The buffer always holds a contiguous range of lines, ending
+ * with the newest line read so far. When the oldest lines are evicted the buffer is no longer complete.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class RecentLines {
+
+    private final int capacity;
+
+    /**
+     * Oldest line first.
+     */
+    private final Deque<Line> lines;
+
+    /**
+     * All the lines matching the filter are in the buffer.
+     */
+    private boolean complete;
+
+    public RecentLines(int capacity) {
+        this.capacity = capacity;
+        this.lines = new ArrayDeque<>(capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized Optional<Line> newest() {
+        return Optional.ofNullable(lines.peekLast());
+    }
+
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Replace the buffer content with the result of a tail read.
+     *
+     * @param newestFirst lines in descending order
+     * @param complete there are no lines older than the given ones
+     */
+    public synchronized void seed(List<Line> newestFirst, boolean complete) {
+        lines.clear();
+        this.complete = complete;
+        for (Line line : newestFirst) {
+            if (lines.size() == capacity) {
+                this.complete = false;
+                break;
+            }
+            lines.addFirst(copy(line, false));
+        }
+    }
+
+    /**
+     * Append lines read after the given line. Lines are appended only if the given line is the newest one in the
+     * buffer, otherwise the buffer would not be contiguous.
+     *
+     * @param ascending lines in ascending order
+     * @return true if the lines were appended
+     */
+    public synchronized boolean append(Line after, List<Line> ascending) {
+        Line newest = lines.peekLast();
+        if (newest == null ? !complete : after == null || LineOrder.INSTANCE.compare(newest, after) != 0) {
+            return false;
+        }
+        for (Line line : ascending) {
+            if (lines.size() == capacity) {
+                lines.removeFirst();
+                complete = false;
+            }
+            lines.addLast(copy(line, false));
+        }
+        return true;
+    }
+
+    public synchronized void clear() {
+        lines.clear();
+        complete = false;
+    }
+
+    /**
+     * @return up to tailLines newest lines in descending order, empty if the buffer doesn't hold enough lines
+     */
+    public synchronized Optional<List<Line>> tail(int tailLines) {
+        if (lines.size() < tailLines && !complete) {
+            return Optional.empty();
+        }
+        List<Line> result = new ArrayList<>(Math.min(tailLines, lines.size()));
+        Iterator<Line> iterator = lines.descendingIterator();
+        while (iterator.hasNext() && result.size() < tailLines) {
+            Line line = iterator.next();
+            boolean last = !iterator.hasNext() && complete;
+            result.add(copy(line, last));
+        }
+        return Optional.of(result);
+    }
+
+    /**
+     * @return up to maxLines lines after the given line in ascending order, empty if the buffer doesn't cover the
+     *         range after the line
+     */
+    public synchronized Optional<List<Line>> after(Line afterLine, int maxLines) {
+        Line oldest = lines.peekFirst();
+        Line newest = lines.peekLast();
+        if (newest == null || LineOrder.INSTANCE.compare(afterLine, newest) > 0) {
+            return Optional.empty();
+        }
+        if (!complete && LineOrder.INSTANCE.compare(afterLine, oldest) < 0) {
+            return Optional.empty();
+        }
+        if (LineOrder.INSTANCE.compare(afterLine, newest) == 0) {
+            return Optional.of(Collections.emptyList());
+        }
+        // lines after are at the end of the buffer, usually there are only a few of them
+        List<Line> result = new ArrayList<>();
+        Iterator<Line> iterator = lines.descendingIterator();
+        while (iterator.hasNext()) {
+            Line line = iterator.next();
+            if (!LineOrder.isAfter(line, afterLine)) {
+                break;
+            }
+            result.add(line);
+        }
+        Collections.reverse(result);
+        List<Line> limited = new ArrayList<>(Math.min(maxLines, result.size()));
+        for (int i = 0; i < result.size() && i < maxLines; i++) {
+            limited.add(copy(result.get(i), false));
+        }
+        return Optional.of(limited);
+    }
+
+    private static Line copy(Line line, boolean last) {
+        return line.cloneBuilder().last(last).build();
+    }
+}
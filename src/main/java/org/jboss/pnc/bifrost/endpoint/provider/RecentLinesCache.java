@@ -0,0 +1,92 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.endpoint.provider;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.pnc.bifrost.Config;
+
+import java.util.Optional;
+
+/**
+ * Recent lines of the most watched logs, keyed by the normalized filters. An entry is created by a tail read and kept
+ * up to date by the reads continuing after its newest line. Entries are evicted when the cache is full or when they
+ * are not accessed for the configured time.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+@ApplicationScoped
+public class RecentLinesCache {
+
+    private static final String className = RecentLinesCache.class.getName();
+
+    @Inject
+    Config config;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Cache<String, RecentLines> cache;
+
+    private Counter hitCounter;
+
+    private Counter missCounter;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(config.getRecentLinesMaxEntries())
+                .expireAfterAccess(config.getRecentLinesIdleTimeout())
+                .build();
+        hitCounter = registry.counter(className + ".hit.count");
+        missCounter = registry.counter(className + ".miss.count");
+        Gauge.builder(className + ".size", cache, Cache::estimatedSize)
+                .description("current number of cached entries")
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return config.isRecentLinesEnabled();
+    }
+
+    public Optional<RecentLines> get(String filterKey) {
+        return Optional.ofNullable(cache.getIfPresent(filterKey));
+    }
+
+    public RecentLines getOrCreate(String filterKey) {
+        return cache.get(filterKey, k -> new RecentLines(config.getRecentLinesSize()));
+    }
+
+    public int getCapacity() {
+        return config.getRecentLinesSize();
+    }
+
+    public void hit() {
+        hitCounter.increment();
+    }
+
+    public void miss() {
+        missCounter.increment();
+    }
+}
@@ -27,7 +27,7 @@ import org.jboss.pnc.api.bifrost.enums.Direction;
  */
 @Getter
 @Setter
-public class GetLinesDto {
+public class GetLinesDto implements LineBatching {
 
     private String matchFilters;
 
@@ -41,4 +41,8 @@ public class GetLinesDto {
 
     private Integer batchSize;
 
+    private Boolean batchLines;
+
+    private Integer batchLingerMillis;
+
 }
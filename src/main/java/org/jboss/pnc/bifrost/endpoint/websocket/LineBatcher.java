@@ -0,0 +1,91 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.endpoint.websocket;
+
+import org.jboss.pnc.api.bifrost.dto.Line;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Groups the lines into batches. A batch is sent when the line ending the read arrives, when it is full or when its
+ * first line waited for the linger time, so the lines of a poll cycle are sent together.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+class LineBatcher implements Consumer<Line> {
+
+    private final ScheduledExecutorService scheduler;
+
+    private final long lingerMillis;
+
+    private final int maxLines;
+
+    private final Consumer<List<Line>> onBatch;
+
+    private List<Line> batch = new ArrayList<>();
+
+    private ScheduledFuture<?> lingerTimeout;
+
+    LineBatcher(ScheduledExecutorService scheduler, long lingerMillis, int maxLines, Consumer<List<Line>> onBatch) {
+        this.scheduler = scheduler;
+        this.lingerMillis = lingerMillis;
+        this.maxLines = maxLines;
+        this.onBatch = onBatch;
+    }
+
+    @Override
+    public void accept(Line line) {
+        List<Line> full = null;
+        synchronized (this) {
+            batch.add(line);
+            if (line.isLast() || batch.size() >= maxLines) {
+                full = takeBatch();
+            } else if (lingerTimeout == null) {
+                lingerTimeout = scheduler.schedule(this::flush, lingerMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) {
+            onBatch.accept(full);
+        }
+    }
+
+    void flush() {
+        List<Line> lines;
+        synchronized (this) {
+            lines = takeBatch();
+        }
+        if (!lines.isEmpty()) {
+            onBatch.accept(lines);
+        }
+    }
+
+    private List<Line> takeBatch() {
+        if (lingerTimeout != null) {
+            lingerTimeout.cancel(false);
+            lingerTimeout = null;
+        }
+        List<Line> lines = batch;
+        batch = new ArrayList<>();
+        return lines;
+    }
+}
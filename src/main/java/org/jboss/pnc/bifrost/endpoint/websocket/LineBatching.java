@@ -0,0 +1,38 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.endpoint.websocket;
+
+/**
+ * Parameters of the methods sending lines. The lines can be sent in batches, a message with {@link LinesResult}
+ * instead of a message with {@link LineResult} per line.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public interface LineBatching {
+
+    /**
+     * Send the lines in batches.
+     */
+    Boolean getBatchLines();
+
+    /**
+     * Max time in milliseconds a line waits for more lines to be sent with, <code>bifrost.lineBatch.lingerMillis</code>
+     * when not set.
+     */
+    Integer getBatchLingerMillis();
+}
@@ -18,6 +18,7 @@
 package org.jboss.pnc.bifrost.endpoint.websocket;
 
 import jakarta.websocket.Session;
+import org.jboss.pnc.bifrost.common.scheduler.Credits;
 
 /**
  * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
@@ -32,4 +33,11 @@ public abstract class MethodBase {
     protected Session getSession() {
         return session;
     }
+
+    /**
+     * @return credits of the lines sent to the session, shared by all its subscriptions
+     */
+    protected Credits getCredits() {
+        return (Credits) session.getUserProperties().getOrDefault(Socket.CREDITS, Credits.unlimited());
+    }
 }
@@ -96,7 +96,8 @@ public class MethodSubscribe extends MethodBase implements Method<SubscribeDto>
         Subscription subscription = new Subscription(
                 getSession().getId(),
                 topic,
-                () -> sendUnsubscribedNotification(topic));
+                () -> sendUnsubscribedNotification(topic),
+                getCredits());
 
         Consumer<Line> onLine = line -> {
             if (line != null) {
@@ -135,7 +136,8 @@ public class MethodSubscribe extends MethodBase implements Method<SubscribeDto>
                         subscription,
                         Optional.empty(),
                         Optional.ofNullable(subscribeDto.getBatchSize()),
-                        Optional.ofNullable(subscribeDto.getBatchDelay()));
+                        Optional.ofNullable(subscribeDto.getBatchDelay()),
+                        true);
             } catch (Exception e) {
                 errCounter.increment();
                 logger.error("Error during subscription initialization.", e);
@@ -26,6 +26,8 @@ import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import org.apache.commons.beanutils.BeanUtils;
 import org.jboss.pnc.api.bifrost.dto.Line;
+import org.jboss.pnc.bifrost.Config;
+import org.jboss.pnc.bifrost.common.scheduler.Credits;
 import org.jboss.pnc.bifrost.common.scheduler.Subscriptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +42,7 @@ import jakarta.websocket.SendHandler;
 import jakarta.websocket.Session;
 import jakarta.websocket.server.ServerEndpoint;
 import java.lang.reflect.InvocationTargetException;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
@@ -52,6 +55,11 @@ public class Socket {
     private static final String className = Socket.class.getName();
     public static final String CONNECTION_CLOSED_BY_USER = "Connection reset by peer";
 
+    /**
+     * Session property with the {@link Credits} of the sent lines.
+     */
+    static final String CREDITS = "credits";
+
     private Logger logger = LoggerFactory.getLogger(Socket.class);
 
     @Inject
@@ -63,6 +71,9 @@ public class Socket {
     @Inject
     MeterRegistry registry;
 
+    @Inject
+    Config config;
+
     private Counter errCounter;
     private Counter warnCounter;
 
@@ -83,6 +94,7 @@ public class Socket {
 
     @OnOpen
     public void open(Session session) {
+        session.getUserProperties().put(CREDITS, new Credits(config.getOutputCredits()));
     }
 
     @OnClose
@@ -158,7 +170,12 @@ public class Socket {
             return;
         }
 
-        Consumer<Line> lineConsumer = line -> sendLine(remote, line, requestId, session);
+        Consumer<Line> lineConsumer;
+        if (methodParameter instanceof LineBatching batching && Boolean.TRUE.equals(batching.getBatchLines())) {
+            lineConsumer = lineBatcher(remote, requestId, session, batching);
+        } else {
+            lineConsumer = line -> sendLine(remote, line, requestId, session);
+        }
 
         Result result = method.apply(methodParameter, lineConsumer);
         logger.debug("Method invoked, result: " + result);
@@ -185,11 +202,58 @@ public class Socket {
     private void sendLine(RemoteEndpoint.Async remote, Line line, Object requestId, Session session) {
         logger.debug("Sending line as text message: " + line.asString());
         JsonbJSONRPC2Response jsonrpc2Response = new JsonbJSONRPC2Response(new LineResult(line), requestId);
-        remote.sendText(jsonrpc2Response.toJSONString(), lineResponseHandler(session));
+        Credits credits = getCredits(session);
+        credits.take();
+        remote.sendText(jsonrpc2Response.toJSONString(), lineResponseHandler(session, credits, 1));
+    }
+
+    /**
+     * Lines are sent in a single message per batch, the credits are taken for the buffered lines so the subscriptions
+     * are paused also by the lines waiting in the batch.
+     */
+    private Consumer<Line> lineBatcher(
+            RemoteEndpoint.Async remote,
+            Object requestId,
+            Session session,
+            LineBatching batching) {
+        Credits credits = getCredits(session);
+        int lingerMillis = Optional.ofNullable(batching.getBatchLingerMillis())
+                .filter(linger -> linger > 0)
+                .map(linger -> Math.min(linger, config.getLineBatchMaxLingerMillis()))
+                .orElse(config.getLineBatchLingerMillis());
+        LineBatcher batcher = new LineBatcher(
+                subscriptions.getScheduler(),
+                lingerMillis,
+                config.getLineBatchMaxLines(),
+                lines -> sendLines(remote, lines, requestId, session, credits));
+        return line -> {
+            credits.take();
+            batcher.accept(line);
+        };
+    }
+
+    private void sendLines(
+            RemoteEndpoint.Async remote,
+            List<Line> lines,
+            Object requestId,
+            Session session,
+            Credits credits) {
+        logger.debug("Sending {} lines as text message.", lines.size());
+        JsonbJSONRPC2Response jsonrpc2Response = new JsonbJSONRPC2Response(new LinesResult(lines), requestId);
+        remote.sendText(jsonrpc2Response.toJSONString(), lineResponseHandler(session, credits, lines.size()));
+    }
+
+    private Credits getCredits(Session session) {
+        return (Credits) session.getUserProperties().getOrDefault(CREDITS, Credits.unlimited());
     }
 
-    private SendHandler lineResponseHandler(Session session) {
+    /**
+     * The credit of the line is returned once the async send completes, the subscriptions of the session are paused
+     * while too many lines are being sent.
+     */
+    private SendHandler lineResponseHandler(Session session, Credits credits, int lines) {
         return result -> {
+            credits.release(lines);
             if (!result.isOK()) {
                 if (result.getException()
                         .getClass()
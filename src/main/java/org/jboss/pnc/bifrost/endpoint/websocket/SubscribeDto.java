@@ -26,7 +26,7 @@ import org.jboss.pnc.api.bifrost.dto.Line;
  */
 @Getter
 @Setter
-public class SubscribeDto {
+public class SubscribeDto implements LineBatching {
 
     private String matchFilters;
 
@@ -40,4 +40,8 @@ public class SubscribeDto {
 
     private Integer batchSize;
 
+    private Boolean batchLines;
+
+    private Integer batchLingerMillis;
+
 }
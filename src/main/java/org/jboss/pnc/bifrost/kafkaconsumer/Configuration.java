@@ -64,6 +64,14 @@ public interface Configuration {
     @WithName("log-every-n-messages")
     int logEveryNMessages();
 
+    /**
+     * Max number of log lines inserted by a single multi-row insert statement. Each row uses 7 bind parameters and
+     * PostgreSQL allows at most 65535 parameters per statement.
+     */
+    @Max(9000)
+    @WithDefault("500")
+    int insertRowsPerStatement();
+
     interface LogFilter {
         String loggerNamePrefix();
 
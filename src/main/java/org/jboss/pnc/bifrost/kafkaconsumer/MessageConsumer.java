@@ -26,17 +26,25 @@ import io.opentelemetry.instrumentation.annotations.WithSpan;
 import io.smallrye.common.annotation.Blocking;
 import jakarta.annotation.PostConstruct;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
+import org.jboss.pnc.bifrost.Config;
+import org.jboss.pnc.bifrost.source.db.LogEntry;
 import org.jboss.pnc.bifrost.source.db.LogEntryRepository;
 import org.jboss.pnc.bifrost.source.db.LogLine;
+import org.jboss.pnc.bifrost.source.db.LogLineBatchWriter;
+import org.jboss.pnc.bifrost.source.dispatch.LinesStored;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.validation.ConstraintViolationException;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.jboss.pnc.bifrost.common.Strings.sanitize;
 
@@ -65,6 +73,18 @@ public class MessageConsumer {
     @Inject
     LogEntryRepository logEntryRepository;
 
+    @Inject
+    LogLineBatchWriter logLineBatchWriter;
+
+    @Inject
+    Config config;
+
+    /**
+     * Stored lines are dispatched to the live subscriptions once the transaction commits.
+     */
+    @Inject
+    Event<LinesStored> linesStoredEvent;
+
     AcceptFilter acceptFilter;
 
     DenyFilter denyFilter;
@@ -82,22 +102,53 @@ public class MessageConsumer {
     }
 
     /**
-     * Consume messages from a Kafka topic and store them to the database.
+     * Consume messages from a Kafka topic and store them to the database. Log entries are resolved once per distinct
+     * entry in the batch and the lines are written by multi-row inserts.
+     * <p>
+     * New log entries are committed on their own, they are resolved before the transaction storing the lines starts so
+     * the consumer does not hold a connection while it waits for another one.
      */
     @Timed
     @Blocking
     @Incoming("logs")
-    @Transactional
     @WithSpan()
     public void consume(@SpanAttribute(value = "json") List<String> batchJsonLines) {
         logger.info("Received {} messages per batch", batchJsonLines.size());
 
+        Map<LogEntry, LogEntry> logEntries = new HashMap<>();
+        List<LogLine> storedLines = new ArrayList<>(batchJsonLines.size());
         for (String json : batchJsonLines) {
-            consumeSingleMessage(json);
+            LogLine logLine = readMessage(json);
+            if (logLine != null && resolveLogEntry(logLine, logEntries)) {
+                storedLines.add(logLine);
+            }
+        }
+        store(storedLines);
+    }
+
+    @Transactional
+    void store(List<LogLine> storedLines) {
+        try {
+            logLineBatchWriter.insert(storedLines, configuration.insertRowsPerStatement());
+        } catch (Exception e) {
+            errCounter.increment();
+            logger.error("Error while saving the data", e);
+            throw new RuntimeException(e);
+        }
+        for (int i = 0; i < storedLines.size(); i++) {
+            storedCounter.increment();
+            micrometerStoredCounter.increment();
+        }
+
+        if (config.isLiveDispatch() && !storedLines.isEmpty()) {
+            linesStoredEvent.fire(new LinesStored(storedLines));
         }
     }
 
-    private void consumeSingleMessage(String json) {
+    /**
+     * @return the line to store or null if the line is filtered out
+     */
+    private LogLine readMessage(String json) {
         logger.debug("Received json line: " + json);
         try {
             LogLine logLine = mapper.readValue(json, LogLine.class);
@@ -106,27 +157,42 @@ public class MessageConsumer {
             // If logLine matches a deny filter, discard silently with no processing
             if (denyFilter.match(logLine)) {
                 logger.debug("Log line matches deny filter: " + logLine.toString());
-                return;
+                return null;
             }
 
             if (logLine.getLogEntry() != null && logLine.getLogEntry().getProcessContext() == null) {
                 logger.warn("Skipping log line due to null processContext. Line: " + logLine);
-                return;
+                return null;
             }
-            if (acceptFilter.match(logLine)) {
-                try {
-                    logLine.setLine(sanitize(logLine.getLine()));
-                    logLine.setLogEntry(logEntryRepository.get(logLine.getLogEntry()));
-                    logLine.persist();
-                    storedCounter.increment();
-                    micrometerStoredCounter.increment();
-                } catch (ConstraintViolationException e) {
-                    logger.warn("Skipping log line due to: " + e.getMessage() + ". Line: " + logLine);
-                }
+            if (!acceptFilter.match(logLine)) {
+                return null;
             }
+            logLine.setLine(sanitize(logLine.getLine()));
+            return logLine;
+        } catch (Exception e) {
+            errCounter.increment();
+            logger.error("Error while reading the data", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Replace the line's log entry with the persisted one, each distinct entry is resolved once per batch.
+     *
+     * @return false if the log entry is not valid
+     */
+    private boolean resolveLogEntry(LogLine logLine, Map<LogEntry, LogEntry> logEntries) {
+        LogEntry logEntry = logLine.getLogEntry();
+        LogEntryRepository.normalize(logEntry);
+        try {
+            logLine.setLogEntry(logEntries.computeIfAbsent(logEntry, logEntryRepository::get));
+            return true;
+        } catch (ConstraintViolationException e) {
+            logger.warn("Skipping log line due to: " + e.getMessage() + ". Line: " + logLine);
+            return false;
         } catch (Exception e) {
             errCounter.increment();
-            logger.error("Error while reading and saving the data", e);
+            logger.error("Error while saving the data", e);
             throw new RuntimeException(e);
         }
     }
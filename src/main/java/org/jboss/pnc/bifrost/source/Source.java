@@ -39,4 +39,36 @@ public interface Source {
             Direction direction,
             int fetchSize,
             Consumer<Line> onLine) throws IOException;
+
+    /**
+     * Read all the lines after <code>searchAfter</code>, up to <code>maxLines</code>. The last line of the range is
+     * marked as last and null is passed when there are no results. Sources without a cursor read the range by
+     * {@link #get} calls of <code>fetchSize</code> lines.
+     */
+    default void stream(
+            Map<String, List<String>> matchFilters,
+            Map<String, List<String>> prefixFilters,
+            Optional<Line> searchAfter,
+            Direction direction,
+            Optional<Integer> maxLines,
+            int fetchSize,
+            Consumer<Line> onLine) throws IOException {
+        // Make sure line is marked as last. Being non last will result in endless loop in case of no results.
+        Line[] lastLine = { searchAfter.map(line -> line.cloneBuilder().last(true).build()).orElse(null) };
+        int[] fetchedLines = { 0 };
+        Consumer<Line> onLineInternal = line -> {
+            if (line != null) {
+                fetchedLines[0]++;
+            }
+            lastLine[0] = line;
+            onLine.accept(line);
+        };
+        do {
+            int batchSize = maxLines.map(max -> Math.min(fetchSize, max - fetchedLines[0])).orElse(fetchSize);
+            if (batchSize < 1) {
+                break;
+            }
+            get(matchFilters, prefixFilters, Optional.ofNullable(lastLine[0]), direction, batchSize, onLineInternal);
+        } while (lastLine[0] != null && !lastLine[0].isLast());
+    }
 }
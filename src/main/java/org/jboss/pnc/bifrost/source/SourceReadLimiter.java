@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.source;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.pnc.bifrost.Config;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of concurrent source reads independently of the threads running them. A read holds a database
+ * connection until its results are consumed, when more reads are running than the pool has connections they fail
+ * on the connection acquisition timeout instead of waiting for their turn.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+@ApplicationScoped
+public class SourceReadLimiter {
+
+    private static final String className = SourceReadLimiter.class.getName();
+
+    @Inject
+    Config config;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Semaphore permits;
+
+    private Counter timeoutCounter;
+
+    @PostConstruct
+    void init() {
+        permits = new Semaphore(config.getSourceReadPermits(), true);
+        Gauge.builder(className + ".waiting", permits, Semaphore::getQueueLength)
+                .description("source reads waiting for a permit")
+                .register(registry);
+        Gauge.builder(className + ".available", permits, Semaphore::availablePermits)
+                .description("available source read permits")
+                .register(registry);
+        timeoutCounter = registry.counter(className + ".timeout.count");
+    }
+
+    /**
+     * Run the read once a permit is available.
+     *
+     * @throws IOException when no permit is released within <code>bifrost.sourceReadPermitTimeout</code>
+     */
+    public void run(Read read) throws IOException {
+        try {
+            if (!permits.tryAcquire(config.getSourceReadPermitTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                timeoutCounter.increment();
+                throw new IOException(
+                        "No source read permit available within " + config.getSourceReadPermitTimeout() + ".");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a source read permit.");
+        }
+        try {
+            read.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    @FunctionalInterface
+    public interface Read {
+        void run() throws IOException;
+    }
+}
@@ -20,13 +20,18 @@ package org.jboss.pnc.bifrost.source.db;
 import io.micrometer.core.annotation.Timed;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
-import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
-import io.quarkus.hibernate.orm.panache.PanacheQuery;
 import io.quarkus.panache.common.Parameters;
 import io.quarkus.panache.common.Sort;
 import jakarta.annotation.PostConstruct;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.SelectionQuery;
 import org.jboss.pnc.api.bifrost.dto.Line;
 import org.jboss.pnc.api.bifrost.enums.Direction;
+import org.jboss.pnc.bifrost.Config;
+import org.jboss.pnc.bifrost.common.Reference;
 import org.jboss.pnc.bifrost.source.Source;
 import org.jboss.pnc.common.Strings;
 import org.slf4j.Logger;
@@ -34,8 +39,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.time.OffsetDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -47,6 +50,7 @@ import java.util.stream.Collectors;
 import jakarta.enterprise.context.Dependent;
 import jakarta.enterprise.context.control.ActivateRequestContext;
 import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
 
 /**
  * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
@@ -54,6 +58,11 @@ import jakarta.inject.Inject;
 @Dependent
 public class DatabaseSource implements Source {
 
+    /**
+     * Maximum number of log entry ids bound to the line query, more matching entries are filtered by the join.
+     */
+    public static final int MAX_LOG_ENTRY_IDS = 1000;
+
     private final Logger logger = LoggerFactory.getLogger(DatabaseSource.class);
 
     @Inject
@@ -62,9 +71,13 @@ public class DatabaseSource implements Source {
     @Inject
     FieldMapping fieldMapping;
 
+    @Inject
+    Config config;
+
+    @Inject
+    QueryStats queryStats;
+
     private Counter errCounter;
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ISO_OFFSET_DATE_TIME
-            .withZone(ZoneId.of("UTC"));
 
     @PostConstruct
     void initMetrics() {
@@ -92,47 +105,32 @@ public class DatabaseSource implements Source {
         Map<String, List<String>> sanitizedPrefixFilters = new HashMap<>(prefixFilters);
         sanitizeFilters(sanitizedMatchFilters, sanitizedPrefixFilters);
 
-        QueryWithParameters queryWithParameters = getQueryWithParameters(
-                sanitizedMatchFilters,
-                sanitizedPrefixFilters,
-                searchAfter,
-                direction);
-        Sort sort = Sort.by("logLine.eventTimestamp", "logLine.sequence", "logLine.id")
-                .direction(getSortDirection(direction));
-
-        String filter;
-        if (!Strings.isEmpty(queryWithParameters.query)) {
-            filter = " where " + queryWithParameters.query;
-        } else {
-            filter = "";
-        }
-
-        PanacheQuery<PanacheEntityBase> query = LogLine.find(
-                "from LogLine logLine left join fetch logLine.logEntry logEntry" + filter,
-                sort,
-                queryWithParameters.parameters);
-        query.range(0, fetchSize + 1);
-        List<LogLine> rows = query.list();
+        QueryStats.Sample sample = queryStats
+                .start(QueryStats.shape(sanitizedMatchFilters, sanitizedPrefixFilters, searchAfter, direction), fetchSize);
+        List<Object[]> rows = sample.db(() -> {
+            SelectionQuery<Object[]> query = createQuery(
+                    sanitizedMatchFilters,
+                    sanitizedPrefixFilters,
+                    searchAfter,
+                    direction);
+            // one more row is read to check if there are more results
+            query.setMaxResults(fetchSize + 1).setReadOnly(true);
+            return query.getResultList();
+        });
 
         logger.info("Received {} rows.", rows.size());
 
+        LineMapper.RowMapper rowMapper = new LineMapper.RowMapper();
         int rowNum = 0;
-
-        /**
-         * loop until fetchSize or all the elements are read note that (fetchSize + 1) is used as a limit in the query
-         * to check if there are more results
-         */
-        Iterator<LogLine> rowsIterator = rows.iterator();
+        Iterator<Object[]> rowsIterator = rows.iterator();
         while (rowsIterator.hasNext() && rowNum < fetchSize) {
             rowNum++;
-            LogLine row = rowsIterator.next();
-            // [NCL-8159] try again to get the entity manager to clear the first-level cache, otherwise it can get
-            // really big
-            LogLine.getEntityManager().detach(row);
+            Object[] row = rowsIterator.next();
             boolean last = !rowsIterator.hasNext();
-            Line line = getLine(row, last);
-            onLine.accept(line);
+            onLine.accept(sample.mapping(() -> rowMapper.toLine(row, last)));
         }
+        sample.addRows(rowNum);
+        queryStats.record(sample);
 
         if (rowNum == 0) {
             logger.debug("There are no results.");
@@ -140,6 +138,152 @@ public class DatabaseSource implements Source {
         }
     }
 
+    /**
+     * Read the range by forward-only cursors, each cursor reads up to <code>bifrost.streamPageSize</code> lines and the
+     * next one continues after its last line. Rows are read as projections, no entities are loaded to the persistence
+     * context.
+     */
+    @Override
+    @Timed
+    @ActivateRequestContext // prevent javax.enterprise.context.ContextNotActiveException
+    public void stream(
+            Map<String, List<String>> matchFilters,
+            Map<String, List<String>> prefixFilters,
+            Optional<Line> searchAfter,
+            Direction direction,
+            Optional<Integer> maxLines,
+            int fetchSize,
+            Consumer<Line> onLine) throws IOException {
+        logger.debug(
+                "Streaming matchFilters: {}, prefixFilters: {}, searchAfter: {}, direction: {}, maxLines: {}.",
+                matchFilters,
+                prefixFilters,
+                searchAfter,
+                direction,
+                maxLines);
+
+        Map<String, List<String>> sanitizedMatchFilters = new HashMap<>(matchFilters);
+        Map<String, List<String>> sanitizedPrefixFilters = new HashMap<>(prefixFilters);
+        sanitizeFilters(sanitizedMatchFilters, sanitizedPrefixFilters);
+
+        Reference<Line> lastLine = new Reference<>();
+        int[] streamedLines = { 0 };
+        Consumer<Line> onLineInternal = line -> {
+            streamedLines[0]++;
+            lastLine.set(line);
+            onLine.accept(line);
+        };
+        do {
+            int pageSize = maxLines.map(max -> Math.min(config.getStreamPageSize(), max - streamedLines[0]))
+                    .orElse(config.getStreamPageSize());
+            if (pageSize < 1) {
+                break;
+            }
+            Optional<Line> pageAfter = Optional.ofNullable(lastLine.get()).or(() -> searchAfter);
+            QueryStats.Sample sample = queryStats.start(
+                    QueryStats.shape(sanitizedMatchFilters, sanitizedPrefixFilters, pageAfter, direction),
+                    fetchSize);
+            int rows = streamPage(
+                    sanitizedMatchFilters,
+                    sanitizedPrefixFilters,
+                    pageAfter,
+                    direction,
+                    pageSize,
+                    fetchSize,
+                    sample,
+                    onLineInternal);
+            // recorded once the page released its connection
+            queryStats.record(sample);
+            if (rows == 0) {
+                logger.debug("There are no more results.");
+                onLine.accept(null);
+                break;
+            }
+        } while (!lastLine.get().isLast());
+        logger.info("Streamed {} rows.", streamedLines[0]);
+    }
+
+    /**
+     * The transaction keeps the cursor open, without it the driver reads all the rows at once.
+     *
+     * @return number of passed lines
+     */
+    @Transactional
+    int streamPage(
+            Map<String, List<String>> matchFilters,
+            Map<String, List<String>> prefixFilters,
+            Optional<Line> searchAfter,
+            Direction direction,
+            int pageSize,
+            int fetchSize,
+            QueryStats.Sample sample,
+            Consumer<Line> onLine) {
+        LineMapper.RowMapper rowMapper = new LineMapper.RowMapper();
+        int rowNum = 0;
+        Object[] pending = null;
+        try (ScrollableResults<Object[]> rows = sample.db(() -> {
+            SelectionQuery<Object[]> query = createQuery(matchFilters, prefixFilters, searchAfter, direction);
+            // one more row is read to check if there are more results
+            query.setMaxResults(pageSize + 1)
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .setCacheMode(CacheMode.IGNORE);
+            return query.scroll(ScrollMode.FORWARD_ONLY);
+        })) {
+            while (sample.db(rows::next)) {
+                if (pending != null) {
+                    Object[] row = pending;
+                    onLine.accept(sample.mapping(() -> rowMapper.toLine(row, false)));
+                    pending = null;
+                }
+                if (rowNum == pageSize) {
+                    break;
+                }
+                pending = rows.get();
+                rowNum++;
+            }
+        }
+        if (pending != null) {
+            Object[] row = pending;
+            onLine.accept(sample.mapping(() -> rowMapper.toLine(row, true)));
+        }
+        sample.addRows(rowNum);
+        return rowNum;
+    }
+
+    /**
+     * Select only the columns required by the {@link LineMapper.RowMapper}, rows are not loaded as entities.
+     */
+    private SelectionQuery<Object[]> createQuery(
+            Map<String, List<String>> matchFilters,
+            Map<String, List<String>> prefixFilters,
+            Optional<Line> searchAfter,
+            Direction direction) {
+        QueryWithParameters queryWithParameters = getQueryWithParameters(
+                matchFilters,
+                prefixFilters,
+                searchAfter,
+                direction);
+        String order = Sort.Direction.Descending.equals(getSortDirection(direction)) ? " desc" : " asc";
+
+        StringBuilder hql = new StringBuilder("select ").append(LineMapper.RowMapper.SELECTION)
+                .append(" from LogLine logLine left join logLine.logEntry logEntry");
+        if (!Strings.isEmpty(queryWithParameters.query)) {
+            hql.append(" where ").append(queryWithParameters.query);
+        }
+        hql.append(" order by logLine.eventTimestamp")
+                .append(order)
+                .append(", logLine.sequence")
+                .append(order)
+                .append(", logLine.id")
+                .append(order);
+
+        Session session = LogLine.getEntityManager().unwrap(Session.class);
+        SelectionQuery<Object[]> query = session.createSelectionQuery(hql.toString(), Object[].class);
+        queryWithParameters.parameters.map().forEach(query::setParameter);
+        return query;
+    }
+
     private void sanitizeFilters(Map<String, List<String>> matchFilters, Map<String, List<String>> prefixFilters) {
         Map<String, List<String>> invalidPrefixFilters = new HashMap<>();
 
@@ -160,27 +304,6 @@ public class DatabaseSource implements Source {
         });
     }
 
-    private Line getLine(LogLine row, boolean last) {
-        Map<String, String> mdc = new HashMap<>();
-        Optional.ofNullable(row.getLogEntry().getProcessContext())
-                .ifPresent(v -> mdc.put("processContext", Long.toString(v)));
-        Optional.ofNullable(row.getLogEntry().getProcessContextVariant())
-                .ifPresent(v -> mdc.put("processContextVariant", v));
-        Optional.ofNullable(row.getLogEntry().getBuildId()).ifPresent(v -> mdc.put("buildId", Long.toString(v)));
-        Optional.ofNullable(row.getLevel()).ifPresent(v -> mdc.put("level", v.toString()));
-        mdc.put("requestContext", row.getLogEntry().getRequestContext());
-
-        return Line.newBuilder()
-                .id(Long.toString(row.getId()))
-                .timestamp(DATE_TIME_FORMATTER.format(row.getEventTimestamp()))
-                .sequence(Long.toString(row.getSequence()))
-                .logger(row.getLoggerName())
-                .message(row.getLine())
-                .last(last)
-                .mdc(mdc)
-                .build();
-    }
-
     @Override
     public void close() {
         // noop - using managed datasource
@@ -195,48 +318,38 @@ public class DatabaseSource implements Source {
         Parameters parameters = new Parameters();
         List<String> andQueryParts = new ArrayList<>();
 
-        matchFilters.forEach((dtoField, values) -> {
-            List<String> valueParts = new ArrayList<>();
-            for (int valueIndex = 0; valueIndex < values.size(); valueIndex++) {
-                FieldMapping.Field field = fieldMapping.getField(dtoField)
-                        .orElseThrow(() -> new InvalidFieldException("The field [" + dtoField + "] is not mapped."));
-
-                String paramName = "m" + field.name + valueIndex;
-                valueParts.add(field.hqlField() + " = :" + paramName);
-
-                String value = values.get(valueIndex);
-                parameters.and(paramName, field.valueConverter().convert(value));
-            }
-            String orParts = valueParts.stream().collect(Collectors.joining(" or "));
-            if (!Strings.isEmpty(orParts)) {
-                andQueryParts.add("(" + orParts + ")");
+        // log entries are resolved first so that the lines are read by the range scan of the composite index starting
+        // with the log entry id instead of a join
+        Parameters logEntryParameters = new Parameters();
+        List<String> logEntryQueryParts = new ArrayList<>();
+        addFilterParts(matchFilters, false, LogEntry.class, logEntryQueryParts, logEntryParameters);
+        addFilterParts(prefixFilters, true, LogEntry.class, logEntryQueryParts, logEntryParameters);
+        if (!logEntryQueryParts.isEmpty()) {
+            List<Long> logEntryIds = getLogEntryIds(logEntryQueryParts, logEntryParameters);
+            if (logEntryIds.isEmpty()) {
+                andQueryParts.add("1 = 0");
+            } else if (logEntryIds.size() > MAX_LOG_ENTRY_IDS) {
+                // too many to bind as parameters, filter the joined log entries instead
+                andQueryParts.addAll(logEntryQueryParts);
+                logEntryParameters.map().forEach(parameters::and);
+            } else {
+                andQueryParts.add("logLine.logEntry.id in :logEntryIds");
+                parameters.and("logEntryIds", logEntryIds);
             }
-        });
-
-        // 'like' queries are string only, no need to convert the value
-        prefixFilters.forEach((dtoField, values) -> {
-            List<String> valueParts = new ArrayList<>();
-            for (int valueIndex = 0; valueIndex < values.size(); valueIndex++) {
-                FieldMapping.Field field = fieldMapping.getField(dtoField)
-                        .orElseThrow(() -> new InvalidFieldException("The field [" + dtoField + "] is not mapped."));
+        }
 
-                String paramName = "p" + field.name + valueIndex;
-                valueParts.add(field.hqlField() + " like :" + paramName);
-
-                String value = values.get(valueIndex);
-                parameters.and(paramName, field.valueConverter().convert(value) + "%");
-            }
-            String orParts = valueParts.stream().collect(Collectors.joining(" or "));
-            if (!Strings.isEmpty(orParts)) {
-                andQueryParts.add("(" + orParts + ")");
-            }
-        });
+        addFilterParts(matchFilters, false, LogLine.class, andQueryParts, parameters);
+        addFilterParts(prefixFilters, true, LogLine.class, andQueryParts, parameters);
 
         searchAfter.ifPresent(afterLine -> {
+            // the redundant timestamp condition allows the planner to skip the partitions out of the range, row
+            // comparisons are not used for partition pruning
             if (Direction.DESC.equals(direction)) {
+                andQueryParts.add("logLine.eventTimestamp <= :afterTimestamp");
                 andQueryParts.add(
                         "(logLine.eventTimestamp, logLine.sequence, logLine.id) < (:afterTimestamp, :afterSequence ,:afterId)");
             } else {
+                andQueryParts.add("logLine.eventTimestamp >= :afterTimestamp");
                 andQueryParts.add(
                         "(logLine.eventTimestamp, logLine.sequence, logLine.id) > (:afterTimestamp, :afterSequence ,:afterId)");
             }
@@ -258,6 +371,55 @@ public class DatabaseSource implements Source {
         return new QueryWithParameters(query, parameters);
     }
 
+    private List<Long> getLogEntryIds(List<String> queryParts, Parameters parameters) {
+        String hql = "select logEntry.id from LogEntry logEntry where " + String.join(" and ", queryParts);
+        Session session = LogEntry.getEntityManager().unwrap(Session.class);
+        SelectionQuery<Long> query = session.createSelectionQuery(hql, Long.class);
+        parameters.map().forEach(query::setParameter);
+        // one over the limit tells there are more
+        query.setMaxResults(MAX_LOG_ENTRY_IDS + 1);
+        List<Long> logEntryIds = query.getResultList();
+        logger.debug("Resolved log entries {}.", logEntryIds);
+        return logEntryIds;
+    }
+
+    /**
+     * Add the conditions of the filters on the fields of the given entity, values of a field are or-ed.
+     *
+     * @param prefix match the values as prefixes, 'like' queries are string only so the value is not converted
+     */
+    private void addFilterParts(
+            Map<String, List<String>> filters,
+            boolean prefix,
+            Class<?> entity,
+            List<String> andQueryParts,
+            Parameters parameters) {
+        filters.forEach((dtoField, values) -> {
+            FieldMapping.Field field = fieldMapping.getField(dtoField)
+                    .orElseThrow(() -> new InvalidFieldException("The field [" + dtoField + "] is not mapped."));
+            if (!entity.equals(field.clazz)) {
+                return;
+            }
+            List<String> valueParts = new ArrayList<>();
+            for (int valueIndex = 0; valueIndex < values.size(); valueIndex++) {
+                String value = values.get(valueIndex);
+                if (prefix) {
+                    String paramName = "p" + field.name + valueIndex;
+                    valueParts.add(field.hqlField() + " like :" + paramName);
+                    parameters.and(paramName, field.valueConverter().convert(value) + "%");
+                } else {
+                    String paramName = "m" + field.name + valueIndex;
+                    valueParts.add(field.hqlField() + " = :" + paramName);
+                    parameters.and(paramName, field.valueConverter().convert(value));
+                }
+            }
+            String orParts = valueParts.stream().collect(Collectors.joining(" or "));
+            if (!Strings.isEmpty(orParts)) {
+                andQueryParts.add("(" + orParts + ")");
+            }
+        });
+    }
+
     private class QueryWithParameters {
 
         final String query;
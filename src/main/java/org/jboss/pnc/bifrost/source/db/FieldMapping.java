@@ -109,5 +109,44 @@ public class FieldMapping {
         public boolean allowExactMatchOnly() {
             return allowExactMatchOnly;
         }
+
+        /**
+         * Read the value of the mapped field from an in-memory entity, used to match lines without querying the
+         * database.
+         */
+        public Object valueOf(LogLine logLine) {
+            if (LogEntry.class.equals(clazz)) {
+                LogEntry logEntry = logLine.getLogEntry();
+                if (logEntry == null) {
+                    return null;
+                }
+                switch (name) {
+                    case "processContext":
+                        return logEntry.getProcessContext();
+                    case "processContextVariant":
+                        return logEntry.getProcessContextVariant();
+                    case "requestContext":
+                        return logEntry.getRequestContext();
+                    case "buildId":
+                        return logEntry.getBuildId();
+                    case "temporary":
+                        return logEntry.getTemporary();
+                }
+            } else {
+                switch (name) {
+                    case "id":
+                        return logLine.getId();
+                    case "eventTimestamp":
+                        return logLine.getEventTimestamp();
+                    case "sequence":
+                        return logLine.getSequence();
+                    case "loggerName":
+                        return logLine.getLoggerName();
+                    case "level":
+                        return logLine.getLevel();
+                }
+            }
+            throw new InvalidFieldException("The field [" + hqlField() + "] cannot be read from the entity.");
+        }
     }
 }
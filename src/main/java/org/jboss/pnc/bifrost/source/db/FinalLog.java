@@ -18,7 +18,6 @@
 package org.jboss.pnc.bifrost.source.db;
 
 import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
-import io.quarkus.panache.common.Parameters;
 import io.quarkus.panache.common.Sort;
 
 import jakarta.persistence.Column;
@@ -27,17 +26,16 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToOne;
-import jakarta.xml.bind.DatatypeConverter;
+import jakarta.persistence.Query;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jboss.pnc.api.bifrost.dto.Checksums;
+import org.jboss.pnc.bifrost.common.Digests;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.security.DigestInputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.sql.Blob;
 import java.sql.SQLException;
 import java.time.OffsetDateTime;
@@ -46,6 +44,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 @Entity
 @AllArgsConstructor
@@ -55,6 +54,13 @@ public class FinalLog extends PanacheEntityBase {
 
     public static final int BUFFER_SIZE = 65536;
 
+    /**
+     * Buffer used to copy the content to the client, large reads reduce the number of round trips to the database.
+     */
+    public static final int COPY_BUFFER_SIZE = 1024 * 1024;
+
+    public static final String GZIP = "gzip";
+
     @Id
     public long id;
 
@@ -70,21 +76,159 @@ public class FinalLog extends PanacheEntityBase {
     @Column(length = 32, nullable = false)
     public String md5sum;
 
+    /**
+     * Checksums of the uncompressed content calculated on upload, null for the logs uploaded before they were stored.
+     */
+    @Column(length = 40)
+    public String sha1sum;
+
+    @Column(length = 64)
+    public String sha256sum;
+
+    @Column(length = 128)
+    public String sha512sum;
+
     @ElementCollection
     public Set<String> tags;
 
     @Lob
     public Blob logContent;
 
+    /**
+     * Size of the uncompressed content.
+     */
     public long size;
 
+    /**
+     * Compression of the stored content, null when it is stored as uploaded.
+     */
+    @Column(length = 16)
+    public String compression;
+
+    /**
+     * Size of the stored content.
+     */
+    public long storedSize;
+
+    /**
+     * @return uncompressed content
+     */
+    public InputStream openContent() throws SQLException, IOException {
+        InputStream content = logContent.getBinaryStream();
+        if (GZIP.equals(compression)) {
+            return new GZIPInputStream(content, BUFFER_SIZE);
+        }
+        return content;
+    }
+
+    public boolean isCompressed() {
+        return compression != null;
+    }
+
+    /**
+     * @return checksums calculated on upload or null when they were not stored
+     */
+    public Checksums getStoredChecksums() {
+        if (sha1sum == null || sha256sum == null || sha512sum == null) {
+            return null;
+        }
+        return new Checksums(md5sum.toLowerCase(), sha1sum, sha256sum, sha512sum);
+    }
+
+    public void setStoredChecksums(Checksums checksums) {
+        sha1sum = checksums.getSha1();
+        sha256sum = checksums.getSha256();
+        sha512sum = checksums.getSha512();
+    }
+
+    /**
+     * Update the digests with the uncompressed content.
+     */
+    public void digest(Digests digests) throws SQLException, IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream content = digests.digesting(openContent())) {
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                if (log.isTraceEnabled()) {
+                    log.trace("Read {} bytes of {}", read, id);
+                }
+            }
+        }
+    }
+
     public static void copyFinalLogsToOutputStream(long processContext, String tag, OutputStream outputStream)
             throws SQLException, IOException {
         Collection<FinalLog> logs = getFinalLogsWithoutPreviousRetries(processContext, tag);
 
         // write all those logs to the output stream now.
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        for (FinalLog finalLog : logs) {
+            try (InputStream content = finalLog.openContent()) {
+                copy(content, outputStream, buffer, Long.MAX_VALUE);
+            }
+        }
+    }
+
+    /**
+     * Copy the content as it is stored, without decompressing it.
+     */
+    public static void copyStoredFinalLogsToOutputStream(long processContext, String tag, OutputStream outputStream)
+            throws SQLException, IOException {
+        Collection<FinalLog> logs = getFinalLogsWithoutPreviousRetries(processContext, tag);
+
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        for (FinalLog finalLog : logs) {
+            try (InputStream content = finalLog.logContent.getBinaryStream()) {
+                copy(content, outputStream, buffer, Long.MAX_VALUE);
+            }
+        }
+    }
+
+    /**
+     * Copy <code>length</code> bytes of the concatenated logs starting at <code>start</code>. Offsets are mapped to the
+     * parts by their sizes and only the parts overlapping the range are read, starting at the required position.
+     * Compressed parts are read from the beginning and the bytes before the range are skipped.
+     */
+    public static void copyFinalLogsToOutputStream(
+            long processContext,
+            String tag,
+            long start,
+            long length,
+            OutputStream outputStream) throws SQLException, IOException {
+        Collection<FinalLog> logs = getFinalLogsWithoutPreviousRetries(processContext, tag);
+
+        long end = start + length;
+        long partStart = 0;
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
         for (FinalLog finalLog : logs) {
-            finalLog.logContent.getBinaryStream().transferTo(outputStream);
+            long partEnd = partStart + finalLog.size;
+            long from = Math.max(start, partStart);
+            long to = Math.min(end, partEnd);
+            if (from < to && finalLog.isCompressed()) {
+                try (InputStream content = finalLog.openContent()) {
+                    content.skipNBytes(from - partStart);
+                    copy(content, outputStream, buffer, to - from);
+                }
+            } else if (from < to) {
+                // blob positions start at 1
+                try (InputStream content = finalLog.logContent.getBinaryStream(from - partStart + 1, to - from)) {
+                    copy(content, outputStream, buffer, to - from);
+                }
+            }
+            if (partEnd >= end) {
+                break;
+            }
+            partStart = partEnd;
+        }
+    }
+
+    private static void copy(InputStream inputStream, OutputStream outputStream, byte[] buffer, long limit)
+            throws IOException {
+        long remaining = limit;
+        int read;
+        while (remaining > 0 && (read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+            outputStream.write(buffer, 0, read);
+            remaining -= read;
         }
     }
 
@@ -118,63 +262,42 @@ public class FinalLog extends PanacheEntityBase {
     }
 
     public static long deleteByProcessContext(long processContext, String tag, boolean temporaryOnly) {
-        // language=HQL
-        String logEntryQuery = "select id from LogEntry where processContext = :processContext";
-        Parameters parameters = Parameters.with("processContext", processContext);
+        // the logs are selected by a subquery so the ids are not loaded nor bound as parameters
+        // language=PostgreSQL
+        String selected = "select f.id from finallog f join logentry e on e.id = f.logentry_id"
+                + " where e.processcontext = :processContext";
         if (temporaryOnly) {
-            logEntryQuery += " and temporary = :temporary";
-            parameters.and("temporary", true);
+            selected += " and e.temporary = true";
         }
-
-        // unfortunately JPA/HQL DELETE queries do not support Joins in FROM clause, so we have fallback to subquery
-        // in WHERE clause
-        // language=HQL
-        String query = "from FinalLog where logEntry.id in (" + logEntryQuery + ")";
         if (tag != null) {
-            query += " and :tag in elements(tags)";
-            parameters.and("tag", tag);
+            selected += " and exists (select 1 from finallog_tags t where t.finallog_id = f.id and t.tags = :tag)";
         }
 
-        List<FinalLog> toDelete = list(query, parameters);
-        toDelete.forEach(PanacheEntityBase::delete);
-        return toDelete.size();
+        // the content is a large object which is not removed with the row
+        Query unlinkContent = getEntityManager().createNativeQuery(
+                "select lo_unlink(logcontent) from finallog where id in (" + selected + ") and logcontent is not null");
+        // the tags and the logs are deleted by a single statement, both deletes see the same selected logs
+        Query delete = getEntityManager().createNativeQuery(
+                "with selected as (" + selected + "),"
+                        + " deleted_tags as (delete from finallog_tags where finallog_id in (select id from selected))"
+                        + " delete from finallog where id in (select id from selected)");
+        for (Query query : List.of(unlinkContent, delete)) {
+            query.setParameter("processContext", processContext);
+            if (tag != null) {
+                query.setParameter("tag", tag);
+            }
+        }
+        unlinkContent.getResultList();
+        return delete.executeUpdate();
     }
 
     public static Checksums getChecksums(long processContext, String tag) throws SQLException, IOException {
         Collection<FinalLog> logs = getFinalLogsWithoutPreviousRetries(processContext, tag);
 
-        MessageDigest md5 = getMessageDigest("MD5");
-        MessageDigest sha1 = getMessageDigest("SHA-1");
-        MessageDigest sha256 = getMessageDigest("SHA-256");
-        MessageDigest sha512 = getMessageDigest("SHA-512");
-        byte[] buffer = new byte[BUFFER_SIZE];
+        Digests digests = Digests.create();
         for (var finalLog : logs) {
-            // chain digest input streams so that all checksums are calculated at the same time
-            DigestInputStream md5Stream = new DigestInputStream(finalLog.logContent.getBinaryStream(), md5);
-            DigestInputStream sha1Stream = new DigestInputStream(md5Stream, sha1);
-            DigestInputStream sha256Stream = new DigestInputStream(sha1Stream, sha256);
-            DigestInputStream sha512Stream = new DigestInputStream(sha256Stream, sha512);
-
-            int read;
-            while ((read = sha512Stream.read(buffer)) != -1) {
-                if (log.isTraceEnabled()) {
-                    log.info("Read {} bytes of {}", read, finalLog.id);
-                }
-            }
-
-        }
-        return new Checksums(
-                DatatypeConverter.printHexBinary(md5.digest()).toLowerCase(),
-                DatatypeConverter.printHexBinary(sha1.digest()).toLowerCase(),
-                DatatypeConverter.printHexBinary(sha256.digest()).toLowerCase(),
-                DatatypeConverter.printHexBinary(sha512.digest()).toLowerCase());
-    }
-
-    private static MessageDigest getMessageDigest(String algorithm) {
-        try {
-            return MessageDigest.getInstance(algorithm);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
+            finalLog.digest(digests);
         }
+        return digests.checksums();
     }
 }
@@ -0,0 +1,107 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.source.db;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.pnc.api.bifrost.dto.Checksums;
+import org.jboss.pnc.bifrost.Config;
+import org.jboss.pnc.bifrost.common.Digests;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checksums of the final logs served from the values stored on upload. A checksum of concatenated parts cannot be
+ * composed from the checksums of the parts, so the digest state after each combination of parts is kept and only the
+ * parts appended later are read.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+@ApplicationScoped
+public class FinalLogChecksums {
+
+    private static final String className = FinalLogChecksums.class.getName();
+
+    @Inject
+    Config config;
+
+    @Inject
+    MeterRegistry registry;
+
+    /**
+     * Digest states keyed by the ids of the digested parts in their order.
+     */
+    private Cache<List<Long>, Digests> cache;
+
+    private Counter partsReadCounter;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(config.getFinalLogChecksumCacheMaxEntries())
+                .expireAfterAccess(config.getFinalLogChecksumCacheIdleTimeout())
+                .build();
+        partsReadCounter = registry.counter(className + ".parts.read.count");
+        Gauge.builder(className + ".size", cache, Cache::estimatedSize)
+                .description("current number of cached digest states")
+                .register(registry);
+    }
+
+    /**
+     * Must be called in a transaction as the content of the parts might be read.
+     */
+    public Checksums get(long processContext, String tag) throws SQLException, IOException {
+        List<FinalLog> logs = new ArrayList<>(FinalLog.getFinalLogsWithoutPreviousRetries(processContext, tag));
+        if (logs.size() == 1 && logs.get(0).getStoredChecksums() != null) {
+            return logs.get(0).getStoredChecksums();
+        }
+
+        List<Long> ids = logs.stream().map(finalLog -> finalLog.id).toList();
+        Digests digests = null;
+        int digested = ids.size();
+        while (digests == null && digested > 0) {
+            Digests cached = cache.getIfPresent(ids.subList(0, digested));
+            if (cached != null) {
+                digests = cached.copy();
+            } else {
+                digested--;
+            }
+        }
+        if (digests == null) {
+            digests = Digests.create();
+        }
+
+        for (FinalLog finalLog : logs.subList(digested, logs.size())) {
+            finalLog.digest(digests);
+            partsReadCounter.increment();
+        }
+        if (digested < ids.size()) {
+            cache.put(ids, digests.copy());
+        }
+        return digests.checksums();
+    }
+}
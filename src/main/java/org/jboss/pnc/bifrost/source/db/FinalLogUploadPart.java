@@ -0,0 +1,132 @@
+/**
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2021 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.source.db;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import io.quarkus.panache.common.Sort;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Query;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Part of the final log uploaded in a {@link FinalLogUploadSession}. A part uploaded again replaces the previous one
+ * with the same number.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = { "session_id", "partNumber" }))
+public class FinalLogUploadPart extends PanacheEntityBase {
+
+    // language=PostgreSQL
+    private static final String UNLINK_SESSION_CONTENT = "select lo_unlink(content) from finalloguploadpart"
+            + " where session_id = :session and content is not null";
+
+    // language=PostgreSQL
+    private static final String LOCK_NUMBER = "select count(*) from pg_advisory_xact_lock(hashtextextended(:key, 0))";
+
+    @Id
+    public long id;
+
+    @ManyToOne(optional = false)
+    public FinalLogUploadSession session;
+
+    /**
+     * Position of the part in the log, starting at 1.
+     */
+    public int partNumber;
+
+    public long size;
+
+    @Column(length = 32, nullable = false)
+    public String md5sum;
+
+    @Lob
+    public Blob content;
+
+    public static List<FinalLogUploadPart> listBySession(FinalLogUploadSession session) {
+        return list("session", Sort.by("partNumber"), session);
+    }
+
+    /**
+     * @return content of the parts in the given order, each part is opened when the previous one is read
+     */
+    public static InputStream concatenate(List<FinalLogUploadPart> parts) {
+        Iterator<FinalLogUploadPart> iterator = parts.iterator();
+        return new SequenceInputStream(new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                FinalLogUploadPart part = iterator.next();
+                try {
+                    return part.content.getBinaryStream();
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Cannot read content of the part " + part.partNumber + ".", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Delete the parts of the session with their content.
+     */
+    public static long deleteBySession(FinalLogUploadSession session) {
+        unlinkContent(UNLINK_SESSION_CONTENT, session, null);
+        return delete("session", session);
+    }
+
+    /**
+     * Delete the part uploaded before with the number, the number of the session stays locked until the end of the
+     * transaction. Uploads of the same part are serialized, a retry waits for the upload it replaces instead of
+     * conflicting with its row.
+     */
+    public static long deleteBySessionAndNumber(FinalLogUploadSession session, int partNumber) {
+        getEntityManager().createNativeQuery(LOCK_NUMBER)
+                .setParameter("key", "finalloguploadpart:" + session.id + ":" + partNumber)
+                .getSingleResult();
+        unlinkContent(UNLINK_SESSION_CONTENT + " and partnumber = :partNumber", session, partNumber);
+        return delete("session = ?1 and partNumber = ?2", session, partNumber);
+    }
+
+    /**
+     * The content is a large object referenced by its oid, it is not removed with the row and must be unlinked before
+     * the row is deleted.
+     */
+    private static void unlinkContent(String query, FinalLogUploadSession session, Integer partNumber) {
+        Query unlink = getEntityManager().createNativeQuery(query).setParameter("session", session.id);
+        if (partNumber != null) {
+            unlink.setParameter("partNumber", partNumber);
+        }
+        unlink.getResultList();
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2021 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.source.db;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.ManyToOne;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Final log uploaded in parts. The final log is created from the parts when the upload is completed, the session and
+ * its parts are deleted then.
+ */
+@Entity
+public class FinalLogUploadSession extends PanacheEntityBase {
+
+    @Id
+    public long id;
+
+    @ManyToOne(optional = false)
+    public LogEntry logEntry;
+
+    @Column(nullable = false)
+    public OffsetDateTime eventTimestamp;
+
+    @Column(nullable = false)
+    public String loggerName;
+
+    /**
+     * Checksum of the whole log.
+     */
+    @Column(length = 32, nullable = false)
+    public String md5sum;
+
+    /**
+     * Comma separated tags of the final log.
+     */
+    @Column(nullable = false)
+    public String tags;
+
+    @Column(nullable = false)
+    public OffsetDateTime created;
+
+    /**
+     * Delete the session with all its parts.
+     */
+    public void deleteWithParts() {
+        FinalLogUploadPart.deleteBySession(this);
+        delete();
+    }
+
+    public static List<FinalLogUploadSession> listCreatedBefore(OffsetDateTime threshold, int limit) {
+        // the sessions are not deleted while their parts are uploaded
+        return find("created < ?1", threshold).withLock(LockModeType.PESSIMISTIC_WRITE).page(0, limit).list();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.source.db;
+
+import org.jboss.pnc.api.bifrost.dto.Line;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Maps stored {@link LogLine} entities to the {@link Line} DTO.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class LineMapper {
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ISO_OFFSET_DATE_TIME
+            .withZone(ZoneId.of("UTC"));
+
+    private LineMapper() {
+    }
+
+    public static Line toLine(LogLine row, boolean last) {
+        LogEntry logEntry = row.getLogEntry();
+        Map<String, String> mdc = mdc(
+                logEntry.getProcessContext(),
+                logEntry.getProcessContextVariant(),
+                logEntry.getRequestContext(),
+                logEntry.getBuildId(),
+                row.getLevel());
+        return line(
+                row.getId(),
+                row.getEventTimestamp(),
+                row.getSequence(),
+                row.getLoggerName(),
+                row.getLine(),
+                mdc,
+                last);
+    }
+
+    private static Map<String, String> mdc(
+            Long processContext,
+            String processContextVariant,
+            String requestContext,
+            Long buildId,
+            LogLevel level) {
+        Map<String, String> mdc = new HashMap<>();
+        Optional.ofNullable(processContext).ifPresent(v -> mdc.put("processContext", Long.toString(v)));
+        Optional.ofNullable(processContextVariant).ifPresent(v -> mdc.put("processContextVariant", v));
+        Optional.ofNullable(buildId).ifPresent(v -> mdc.put("buildId", Long.toString(v)));
+        Optional.ofNullable(level).ifPresent(v -> mdc.put("level", v.toString()));
+        mdc.put("requestContext", requestContext);
+        return mdc;
+    }
+
+    private static Line line(
+            long id,
+            OffsetDateTime eventTimestamp,
+            long sequence,
+            String loggerName,
+            String message,
+            Map<String, String> mdc,
+            boolean last) {
+        return Line.newBuilder()
+                .id(Long.toString(id))
+                .timestamp(DATE_TIME_FORMATTER.format(eventTimestamp))
+                .sequence(Long.toString(sequence))
+                .logger(loggerName)
+                .message(message)
+                .last(last)
+                .mdc(mdc)
+                .build();
+    }
+
+    /**
+     * Maps the rows of a query selecting {@link #SELECTION}. Rows of the same log entry and level share a single
+     * unmodifiable mdc map, use a new mapper for each query.
+     */
+    public static class RowMapper {
+
+        public static final String SELECTION = "logLine.id, logLine.eventTimestamp, logLine.sequence, logLine.level,"
+                + " logLine.loggerName, logLine.line, logEntry.id, logEntry.processContext,"
+                + " logEntry.processContextVariant, logEntry.requestContext, logEntry.buildId";
+
+        private static final LogLevel[] LEVELS = LogLevel.values();
+
+        /**
+         * Mdc maps by log entry id, indexed by level ordinal, the last one is for lines without level.
+         */
+        private final Map<Long, List<Map<String, String>>> mdcs = new HashMap<>();
+
+        public Line toLine(Object[] row, boolean last) {
+            LogLevel level = (LogLevel) row[3];
+            List<Map<String, String>> entryMdcs = mdcs.computeIfAbsent(
+                    (Long) row[6],
+                    entryId -> new ArrayList<>(Collections.nCopies(LEVELS.length + 1, null)));
+            int index = level == null ? LEVELS.length : level.ordinal();
+            Map<String, String> mdc = entryMdcs.get(index);
+            if (mdc == null) {
+                mdc = Collections
+                        .unmodifiableMap(mdc((Long) row[7], (String) row[8], (String) row[9], (Long) row[10], level));
+                entryMdcs.set(index, mdc);
+            }
+            return line(
+                    (Long) row[0],
+                    (OffsetDateTime) row[1],
+                    (Long) row[2],
+                    (String) row[4],
+                    (String) row[5],
+                    mdc,
+                    last);
+        }
+    }
+}
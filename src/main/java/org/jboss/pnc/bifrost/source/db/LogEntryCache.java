@@ -0,0 +1,129 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.source.db;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.Value;
+import org.jboss.pnc.bifrost.Config;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.UnaryOperator;
+
+/**
+ * Persisted log entries shared by all the consumer threads, keyed by the log entry values. The cache is bounded by size
+ * and entries not accessed for the configured time are evicted.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+@ApplicationScoped
+public class LogEntryCache {
+
+    private static final String className = LogEntryCache.class.getName();
+
+    @Inject
+    Config config;
+
+    @Inject
+    MeterRegistry registry;
+
+    private AsyncCache<Key, LogEntry> cache;
+
+    private Counter missCounter;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(config.getLogEntryCacheMaxEntries())
+                .expireAfterAccess(config.getLogEntryCacheIdleTimeout())
+                .buildAsync();
+        missCounter = registry.counter(className + ".miss.count");
+        Gauge.builder(className + ".size", cache, c -> c.synchronous().estimatedSize())
+                .description("current number of cached entries")
+                .register(registry);
+    }
+
+    /**
+     * Return the cached log entry with the same values or the one returned by the loader. Concurrent calls for an
+     * entry which is not cached yet wait for a single loader call. Nothing is cached when the loader throws, the waiting
+     * calls then load the entry on their own.
+     * <p>
+     * The loader is called by the calling thread outside of the cache locks, so a loader doing database I/O does not
+     * block the look-ups of other entries.
+     *
+     * @param loader returns the persisted log entry, it must be committed when the loader returns as it is visible to
+     *        the other threads
+     */
+    public LogEntry get(LogEntry logEntry, UnaryOperator<LogEntry> loader) {
+        Key key = new Key(logEntry);
+        while (true) {
+            CompletableFuture<LogEntry> loading = new CompletableFuture<>();
+            CompletableFuture<LogEntry> cached = cache.asMap().putIfAbsent(key, loading);
+            if (cached == null) {
+                return load(key, logEntry, loader, loading);
+            }
+            try {
+                return cached.join();
+            } catch (CancellationException | CompletionException e) {
+                // the load failed, this call tries on its own
+            }
+        }
+    }
+
+    private LogEntry load(
+            Key key,
+            LogEntry logEntry,
+            UnaryOperator<LogEntry> loader,
+            CompletableFuture<LogEntry> loading) {
+        missCounter.increment();
+        try {
+            LogEntry loaded = loader.apply(logEntry);
+            loading.complete(loaded);
+            return loaded;
+        } catch (RuntimeException | Error e) {
+            cache.asMap().remove(key, loading);
+            loading.cancel(false);
+            throw e;
+        }
+    }
+
+    @Value
+    private static class Key {
+        Long processContext;
+        String processContextVariant;
+        String requestContext;
+        Boolean temporary;
+        Long buildId;
+
+        Key(LogEntry logEntry) {
+            processContext = logEntry.getProcessContext();
+            processContextVariant = logEntry.getProcessContextVariant();
+            requestContext = logEntry.getRequestContext();
+            temporary = logEntry.getTemporary();
+            buildId = logEntry.getBuildId();
+        }
+    }
+}
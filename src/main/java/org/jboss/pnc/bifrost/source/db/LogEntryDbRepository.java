@@ -17,13 +17,13 @@
  */
 package org.jboss.pnc.bifrost.source.db;
 
-import org.jboss.pnc.common.Strings;
 import org.jboss.pnc.common.concurrent.Sequence;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import jakarta.annotation.Priority;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.inject.Alternative;
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 
 /**
@@ -36,17 +36,25 @@ public class LogEntryDbRepository implements LogEntryRepository {
 
     private static final Logger LOG = LoggerFactory.getLogger(LogEntryDbRepository.class);
 
+    @Inject
+    LogEntryCache cache;
+
     /**
-     * Return an already persisted log entry if it exists otherwise persists it. Checking for existing logEntry is using
-     * cached query to avoid a select before each insert. Query cache may not be synchronized between all instances in
-     * the cluster and may cause duplicates in the database, duplicates are acceptable in favor of performance.
+     * Return an already persisted log entry if it exists otherwise persists it. Resolved entries are cached to avoid a
+     * select before each insert, concurrent look-ups of the same new entry result in a single insert. The cache is not
+     * synchronized between the instances in the cluster and may cause duplicates in the database, duplicates are
+     * acceptable in favor of performance.
      */
-    @Transactional
     public LogEntry get(LogEntry logEntry) {
-        // Avoid duplicated logEntry values with empty and 0
-        if (Strings.isEmpty(logEntry.processContextVariant)) {
-            logEntry.setProcessContextVariant("0");
-        }
+        LogEntryRepository.normalize(logEntry);
+        return cache.get(logEntry, this::findOrPersist);
+    }
+
+    /**
+     * Cached entries are used by other transactions, the entry is committed before it is cached.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    LogEntry findOrPersist(LogEntry logEntry) {
         return LogEntry.findExisting(logEntry).orElseGet(() -> {
             LOG.debug("Persisting LogEntry: " + logEntry);
             // set a proper id since it's probably not set when we are trying to search for an existing log entry
@@ -20,13 +20,9 @@ package org.jboss.pnc.bifrost.source.db;
 import jakarta.annotation.Priority;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.inject.Alternative;
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 
-import org.jboss.pnc.common.Strings;
-
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
  */
@@ -35,7 +31,8 @@ import java.util.Map;
 @ApplicationScoped
 public class LogEntryLocalRepository implements LogEntryRepository {
 
-    private final Map<LogEntry, LogEntry> cache = new HashMap<>();
+    @Inject
+    LogEntryCache cache;
 
     /**
      * Return persisted log entry. If logEntry is not cached yet, it is persisted and then returned. There is
@@ -43,15 +40,17 @@ public class LogEntryLocalRepository implements LogEntryRepository {
      * entries.
      */
     @Override
-    @Transactional
     public LogEntry get(LogEntry logEntry) {
-        // Avoid duplicated logEntry values with empty and 0
-        if (Strings.isEmpty(logEntry.processContextVariant)) {
-            logEntry.setProcessContextVariant("0");
-        }
-        return cache.computeIfAbsent(logEntry, e -> {
-            logEntry.persist();
-            return logEntry;
-        });
+        LogEntryRepository.normalize(logEntry);
+        return cache.get(logEntry, this::persist);
+    }
+
+    /**
+     * Cached entries are used by other transactions, the entry is committed before it is cached.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    LogEntry persist(LogEntry logEntry) {
+        logEntry.persist();
+        return logEntry;
     }
 }
@@ -18,9 +18,19 @@
 package org.jboss.pnc.bifrost.source.db;
 
 import jakarta.transaction.Transactional;
+import org.jboss.pnc.common.Strings;
 
 public interface LogEntryRepository {
 
+    /**
+     * Avoid duplicated logEntry values with empty and 0
+     */
+    static void normalize(LogEntry logEntry) {
+        if (Strings.isEmpty(logEntry.processContextVariant)) {
+            logEntry.setProcessContextVariant("0");
+        }
+    }
+
     /**
      * Returns persisted logEntry.
      */
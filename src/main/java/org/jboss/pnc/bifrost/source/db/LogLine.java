@@ -49,7 +49,9 @@ import jakarta.persistence.Table;
                 @Index(name = "idx_logline_eventtimestamp", columnList = "eventTimestamp"),
                 @Index(name = "idx_logline_sequence", columnList = "sequence"),
                 @Index(name = "idx_logline_loggerName", columnList = "loggerName"),
-                @Index(name = "idx_logline_fkey_logentry_id", columnList = "logentry_id") })
+                @Index(
+                        name = "idx_logline_logentry_timestamp",
+                        columnList = "logentry_id, eventTimestamp, sequence, id") })
 @JsonDeserialize(using = LogLineDeserializer.class)
 public class LogLine extends PanacheEntityBase {
 
@@ -0,0 +1,108 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.source.db;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bulk insert of log lines using multi-row insert statements. Lines are written directly through the JDBC connection
+ * of the current transaction, bypassing the persistence context.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+@ApplicationScoped
+public class LogLineBatchWriter {
+
+    private final Logger logger = LoggerFactory.getLogger(LogLineBatchWriter.class);
+
+    private static final String INSERT = "insert into LogLine"
+            + " (id, logEntry_id, eventTimestamp, sequence, level_id, loggerName, line) values ";
+
+    private static final String ROW_VALUES = "(?, ?, ?, ?, ?, ?, ?)";
+
+    private final Map<Integer, String> statements = new ConcurrentHashMap<>();
+
+    /**
+     * Insert the lines in the current transaction. Log entries of the lines must be persisted.
+     *
+     * @param rowsPerStatement max number of rows inserted by a single statement
+     */
+    @Timed
+    public void insert(List<LogLine> logLines, int rowsPerStatement) {
+        if (logLines.isEmpty()) {
+            return;
+        }
+        Session session = LogLine.getEntityManager().unwrap(Session.class);
+        // log entries persisted in the transaction must be written before the lines referencing them
+        session.flush();
+        session.doWork(connection -> {
+            for (int from = 0; from < logLines.size(); from += rowsPerStatement) {
+                int to = Math.min(from + rowsPerStatement, logLines.size());
+                insert(connection, logLines.subList(from, to));
+            }
+        });
+        logger.debug("Inserted {} lines.", logLines.size());
+    }
+
+    private void insert(Connection connection, List<LogLine> rows) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(getStatement(rows.size()))) {
+            int index = 1;
+            for (LogLine row : rows) {
+                statement.setLong(index++, row.getId());
+                statement.setLong(index++, row.getLogEntry().getId());
+                statement.setObject(index++, row.getEventTimestamp());
+                statement.setLong(index++, row.getSequence());
+                if (row.getLevel() != null) {
+                    // the level is mapped as ordinal
+                    statement.setShort(index++, (short) row.getLevel().ordinal());
+                } else {
+                    statement.setNull(index++, Types.SMALLINT);
+                }
+                statement.setString(index++, row.getLoggerName());
+                statement.setString(index++, row.getLine());
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    private String getStatement(int rows) {
+        return statements.computeIfAbsent(rows, r -> {
+            StringBuilder sql = new StringBuilder(INSERT.length() + r * (ROW_VALUES.length() + 2));
+            sql.append(INSERT);
+            for (int i = 0; i < r; i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(ROW_VALUES);
+            }
+            return sql.toString();
+        });
+    }
+}
@@ -18,13 +18,12 @@
 package org.jboss.pnc.bifrost.source.db;
 
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import org.jboss.pnc.bifrost.common.DateParser;
 import org.jboss.pnc.bifrost.source.db.converter.ValueConverter;
 import org.jboss.pnc.bifrost.source.db.converter.IdConverter;
-import org.jboss.pnc.common.Json;
 import org.jboss.pnc.common.Strings;
 import org.jboss.pnc.common.concurrent.Sequence;
 import org.slf4j.Logger;
@@ -34,10 +33,10 @@ import java.io.IOException;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
-import java.util.Optional;
 
 /**
- * Use to deserialize json messages from a Kafka stream.
+ * Use to deserialize json messages from a Kafka stream. The message is read in a single pass over the tokens, only the
+ * required fields are extracted and all the others are skipped without building a tree.
  *
  * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
  */
@@ -59,34 +58,96 @@ public class LogLineDeserializer extends StdDeserializer<LogLine> {
     public LogLine deserialize(JsonParser jsonParser, DeserializationContext deserializationContext)
             throws IOException {
 
-        JsonNode node = jsonParser.getCodec().readTree(jsonParser);
-        long sequence = getLong(node, "/sequence").orElse(0L);
+        long sequence = 0L;
+        String atTimestamp = null;
+        String timestamp = null;
+        String level = null;
+        String loggerName = null;
+        String message = null;
+        String stackTrace = null;
+        String processContext = null;
+        String processContextVariant = null;
+        String requestContext = null;
+        String temp = null;
+        String buildId = null;
 
-        String time = Json.getText(node, "/@timestamp").or(() -> Json.getText(node, "/timestamp")).orElseGet(() -> {
-            logger.warn("Missing timestamp in input message, setting it now.");
-            return Instant.now().toString();
-        });
+        JsonToken token = jsonParser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = jsonParser.nextToken();
+        }
+        for (; token == JsonToken.FIELD_NAME; token = jsonParser.nextToken()) {
+            String field = jsonParser.currentName();
+            jsonParser.nextToken();
+            switch (field) {
+                case "@timestamp":
+                    atTimestamp = getString(jsonParser);
+                    break;
+                case "timestamp":
+                    timestamp = getString(jsonParser);
+                    break;
+                case "sequence":
+                    sequence = getLong(jsonParser);
+                    break;
+                case "level":
+                    level = getString(jsonParser);
+                    break;
+                case "loggerName":
+                    loggerName = getString(jsonParser);
+                    break;
+                case "message":
+                    message = getString(jsonParser);
+                    break;
+                case "stackTrace":
+                    stackTrace = getString(jsonParser);
+                    break;
+                case "mdc":
+                    if (jsonParser.currentToken() != JsonToken.START_OBJECT) {
+                        jsonParser.skipChildren();
+                        break;
+                    }
+                    while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+                        String mdcField = jsonParser.currentName();
+                        jsonParser.nextToken();
+                        switch (mdcField) {
+                            case "processContext":
+                                processContext = getString(jsonParser);
+                                break;
+                            case "processContextVariant":
+                                processContextVariant = getString(jsonParser);
+                                break;
+                            case "requestContext":
+                                requestContext = getString(jsonParser);
+                                break;
+                            case "tmp":
+                                temp = getString(jsonParser);
+                                break;
+                            case "buildId":
+                                buildId = getString(jsonParser);
+                                break;
+                            default:
+                                jsonParser.skipChildren();
+                        }
+                    }
+                    break;
+                default:
+                    jsonParser.skipChildren();
+            }
+        }
 
-        Instant timestamp = DateParser.parseTime(time);
-        String level = Json.getText(node, "/level").orElse(null);
-        String loggerName = Json.getText(node, "/loggerName").orElse(null);
-        String processContext = Json.getText(node, "/mdc/processContext").orElse(null);
-        String processContextVariant = Json.getText(node, "/mdc/processContextVariant").orElse(null);
-        String requestContext = Json.getText(node, "/mdc/requestContext").orElse(null);
-        Boolean temp = Boolean.parseBoolean(Json.getText(node, "/mdc/tmp").orElse("false"));
-        String buildId = Json.getText(node, "/mdc/buildId").orElse(null);
+        String time = atTimestamp != null ? atTimestamp : timestamp;
+        if (time == null) {
+            logger.warn("Missing timestamp in input message, setting it now.");
+            time = Instant.now().toString();
+        }
+        Instant eventTime = DateParser.parseTime(time);
 
-        String message = Json.getText(node, "/message").orElse(null);
         String logLine;
         if (!Strings.isEmpty(message)) {
             logLine = message;
+        } else if (stackTrace != null) {
+            logLine = stackTrace.lines().findFirst().orElse("");
         } else {
-            Optional<String> stackTrace = Json.getText(node, "/stackTrace");
-            if (stackTrace.isPresent()) {
-                logLine = stackTrace.get().lines().findFirst().orElse("");
-            } else {
-                logLine = "";
-            }
+            logLine = "";
         }
 
         LogEntry logEntry = new LogEntry(
@@ -94,30 +155,41 @@ public class LogLineDeserializer extends StdDeserializer<LogLine> {
                 idConverter.convert(processContext),
                 processContextVariant,
                 requestContext,
-                temp,
+                Boolean.parseBoolean(temp),
                 idConverter.convert(buildId));
         return new LogLine(
                 Sequence.nextId(),
                 logEntry,
-                OffsetDateTime.ofInstant(timestamp, ZoneOffset.UTC),
+                OffsetDateTime.ofInstant(eventTime, ZoneOffset.UTC),
                 sequence,
                 LogLevel.parse(level),
                 loggerName,
                 logLine);
     }
 
-    public static Optional<Long> getLong(JsonNode node, String path) {
-        JsonNode jsonNode = node.at(path);
-        if (jsonNode.isMissingNode()) {
-            return Optional.empty();
-        } else {
-            if (jsonNode.isNumber()) {
-                return Optional.of(jsonNode.longValue());
-            } else {
-                // number is probably quoted
-                String value = jsonNode.textValue();
-                return Optional.of(Long.valueOf(value));
-            }
+    /**
+     * Read the current value as string, an object or array value is skipped and read as null.
+     */
+    private static String getString(JsonParser jsonParser) throws IOException {
+        if (jsonParser.currentToken().isStructStart()) {
+            jsonParser.skipChildren();
+            return null;
+        }
+        return jsonParser.getValueAsString();
+    }
+
+    /**
+     * Read the current value as long, the number might be quoted.
+     */
+    private static long getLong(JsonParser jsonParser) throws IOException {
+        if (jsonParser.currentToken().isNumeric()) {
+            return jsonParser.getLongValue();
+        }
+        String value = getString(jsonParser);
+        if (value == null) {
+            jsonParser.skipChildren();
+            return 0L;
         }
+        return Long.parseLong(value);
     }
 }
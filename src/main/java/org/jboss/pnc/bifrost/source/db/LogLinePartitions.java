@@ -0,0 +1,122 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.source.db;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Time range partitions of the LogLine table. When the table is not partitioned no partitions are found.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+@ApplicationScoped
+@Slf4j
+public class LogLinePartitions {
+
+    private static final DateTimeFormatter NAME_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    /**
+     * Upper bound of a range partition, null for the default partition.
+     */
+    // language=PostgreSQL
+    private static final String UPPER_BOUND = "cast(substring(pg_get_expr(child.relpartbound, child.oid)"
+            + " from 'TO \\(''([^'']+)''\\)') as timestamptz)";
+
+    // language=PostgreSQL
+    private static final String PARTITIONS = " from pg_inherits join pg_class child on child.oid = pg_inherits.inhrelid"
+            + " where pg_inherits.inhparent = to_regclass('logline')";
+
+    /**
+     * Names of the partitions with the upper bound of the range not after the threshold. The default partition is never
+     * listed.
+     */
+    private static final String ENDING_BEFORE = "select cast(child.relname as text)" + PARTITIONS + " and "
+            + UPPER_BOUND + " <= :threshold";
+
+    private static final String MAX_UPPER_BOUND = "select max(" + UPPER_BOUND + ")" + PARTITIONS;
+
+    // language=PostgreSQL
+    private static final String IS_PARTITIONED = "select count(*) from pg_partitioned_table"
+            + " where partrelid = to_regclass('logline')";
+
+    @Transactional
+    public boolean isPartitioned() {
+        Number count = (Number) LogLine.getEntityManager().createNativeQuery(IS_PARTITIONED).getSingleResult();
+        return count.intValue() > 0;
+    }
+
+    /**
+     * @return the end of the last range partition
+     */
+    @Transactional
+    public Optional<OffsetDateTime> getUpperBound() {
+        return Optional.ofNullable(
+                (OffsetDateTime) LogLine.getEntityManager()
+                        .createNativeQuery(MAX_UPPER_BOUND, OffsetDateTime.class)
+                        .getSingleResult());
+    }
+
+    /**
+     * Create the partition for the month starting at the given time. Partitions are named by the month in UTC, the
+     * migration creating the partitioned table uses the same names.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void createMonth(OffsetDateTime from) {
+        OffsetDateTime start = from.withOffsetSameInstant(ZoneOffset.UTC);
+        String name = "logline_p" + NAME_SUFFIX.format(start);
+        LogLine.getEntityManager()
+                .createNativeQuery(
+                        "create table " + quote(name) + " partition of logline for values from ('" + start
+                                + "') to ('" + start.plusMonths(1) + "')")
+                .executeUpdate();
+        log.info("Created partition {} of live log lines.", name);
+    }
+
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public List<String> listEndingBefore(OffsetDateTime threshold) {
+        return LogLine.getEntityManager()
+                .createNativeQuery(ENDING_BEFORE, String.class)
+                .setParameter("threshold", threshold)
+                .getResultList();
+    }
+
+    /**
+     * Detach and drop the partition with all its lines. Dropping a partition is a metadata change, it does not scan
+     * nor log the deleted rows.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void drop(String partition) {
+        String name = quote(partition);
+        LogLine.getEntityManager().createNativeQuery("alter table logline detach partition " + name).executeUpdate();
+        LogLine.getEntityManager().createNativeQuery("drop table " + name).executeUpdate();
+        log.info("Dropped partition {} of live log lines.", partition);
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+}
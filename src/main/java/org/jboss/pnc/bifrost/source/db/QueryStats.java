@@ -0,0 +1,321 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.source.db;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import lombok.Getter;
+import lombok.Value;
+import org.hibernate.Session;
+import org.jboss.pnc.api.bifrost.dto.Line;
+import org.jboss.pnc.api.bifrost.enums.Direction;
+import org.jboss.pnc.bifrost.Config;
+import org.jboss.pnc.bifrost.common.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Timing of the source queries by the shape of their filters. Queries slower than
+ * <code>bifrost.slowQuery.threshold</code> are kept with the execution plan of their statement, the plan is read in the
+ * background after the query.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+@ApplicationScoped
+public class QueryStats {
+
+    private final Logger logger = LoggerFactory.getLogger(QueryStats.class);
+
+    private static final String className = QueryStats.class.getName();
+
+    private static final int EXPLAIN_QUEUE_SIZE = 10;
+
+    @Inject
+    Config config;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+
+    /**
+     * Explains the slow queries one at a time, the queries not fitting the queue are kept without the plan.
+     */
+    private final ExecutorService explainExecutor = new ThreadPoolExecutor(
+            1,
+            1,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(EXPLAIN_QUEUE_SIZE),
+            runnable -> {
+                Thread thread = new Thread(runnable, "slow-query-explain");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final Map<String, Long> explainedAt = new ConcurrentHashMap<>();
+
+    /**
+     * Shape of the query: the filtered fields without the values, the direction and whether it continues after a line.
+     */
+    public static String shape(
+            Map<String, List<String>> matchFilters,
+            Map<String, List<String>> prefixFilters,
+            Optional<Line> searchAfter,
+            Direction direction) {
+        return "match:" + String.join(",", new TreeSet<>(matchFilters.keySet())) + ";prefix:"
+                + String.join(",", new TreeSet<>(prefixFilters.keySet())) + ";direction:" + direction + ";after:"
+                + searchAfter.isPresent();
+    }
+
+    public Sample start(String shape, int fetchSize) {
+        return new Sample(shape, fetchSize);
+    }
+
+    public void record(Sample sample) {
+        Timer.builder(className + ".db")
+                .description("time spent by the database")
+                .tag("shape", sample.shape)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(sample.dbNanos, TimeUnit.NANOSECONDS);
+        Timer.builder(className + ".mapping")
+                .description("time spent mapping the rows to lines")
+                .tag("shape", sample.shape)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(sample.mappingNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder(className + ".rows")
+                .description("rows returned by a query")
+                .tag("shape", sample.shape)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(sample.rows);
+
+        Duration duration = Duration.ofNanos(sample.dbNanos + sample.mappingNanos);
+        if (duration.compareTo(config.getSlowQueryThreshold()) < 0) {
+            return;
+        }
+        logger.warn(
+                "Slow query {} with fetch size {} returned {} rows in {} ms (db {} ms).",
+                sample.shape,
+                sample.fetchSize,
+                sample.rows,
+                duration.toMillis(),
+                TimeUnit.NANOSECONDS.toMillis(sample.dbNanos));
+        OffsetDateTime recorded = OffsetDateTime.now();
+        String sql = sample.sql.get();
+        Consumer<String> keep = plan -> keep(
+                new SlowQuery(
+                        recorded,
+                        sample.shape,
+                        sample.fetchSize,
+                        sample.rows,
+                        TimeUnit.NANOSECONDS.toMillis(sample.dbNanos),
+                        TimeUnit.NANOSECONDS.toMillis(sample.mappingNanos),
+                        sql,
+                        plan));
+        if (config.isSlowQueryExplain() && sql != null && isExplainDue(sample.shape)) {
+            try {
+                // the plan is read by another connection, not while the query holds its own
+                explainExecutor.execute(() -> keep.accept(explain(sql)));
+                return;
+            } catch (RejectedExecutionException e) {
+                logger.debug("Too many queries waiting to be explained, skipping the plan.");
+            }
+        }
+        keep.accept(null);
+    }
+
+    /**
+     * A shape is explained at most once per <code>bifrost.slowQuery.explainInterval</code>.
+     */
+    private boolean isExplainDue(String shape) {
+        long now = System.nanoTime();
+        long interval = config.getSlowQueryExplainInterval().toNanos();
+        boolean[] due = { false };
+        explainedAt.compute(shape, (key, last) -> {
+            if (last == null || now - last >= interval) {
+                due[0] = true;
+                return now;
+            }
+            return last;
+        });
+        return due[0];
+    }
+
+    private void keep(SlowQuery slowQuery) {
+        synchronized (slowQueries) {
+            slowQueries.addFirst(slowQuery);
+            while (slowQueries.size() > config.getSlowQueryMaxKept()) {
+                slowQueries.removeLast();
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        explainExecutor.shutdownNow();
+    }
+
+    /**
+     * @return the slow queries, the latest first
+     */
+    public List<SlowQuery> getSlowQueries() {
+        synchronized (slowQueries) {
+            return new ArrayList<>(slowQueries);
+        }
+    }
+
+    public void clearSlowQueries() {
+        synchronized (slowQueries) {
+            slowQueries.clear();
+        }
+    }
+
+    /**
+     * Explain the statement without the parameter values, a failure does not affect the transaction of the query.
+     * Generic plans require PostgreSQL 16.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    String explain(String sql) {
+        try {
+            return LogLine.getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+                StringBuilder plan = new StringBuilder();
+                try (Statement statement = connection.createStatement();
+                        ResultSet resultSet = statement
+                                .executeQuery("explain (generic_plan) " + numberParameters(sql))) {
+                    while (resultSet.next()) {
+                        plan.append(resultSet.getString(1)).append('\n');
+                    }
+                }
+                return plan.toString();
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Cannot explain the query.", e);
+            return "Plan not available: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Replace the JDBC parameter placeholders by the numbered ones, placeholders in literals are kept.
+     */
+    static String numberParameters(String sql) {
+        StringBuilder numbered = new StringBuilder(sql.length() + 16);
+        boolean inLiteral = false;
+        int parameter = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                inLiteral = !inLiteral;
+            }
+            if (c == '?' && !inLiteral) {
+                numbered.append('$').append(++parameter);
+            } else {
+                numbered.append(c);
+            }
+        }
+        return numbered.toString();
+    }
+
+    /**
+     * Measurements of a single query, not thread safe.
+     */
+    @Getter
+    public static class Sample {
+
+        private final String shape;
+
+        private final int fetchSize;
+
+        private final Reference<String> sql = new Reference<>();
+
+        private long dbNanos;
+
+        private long mappingNanos;
+
+        private int rows;
+
+        Sample(String shape, int fetchSize) {
+            this.shape = shape;
+            this.fetchSize = fetchSize;
+        }
+
+        /**
+         * Run the database call, its statement is captured.
+         */
+        public <T> T db(Supplier<T> call) {
+            long started = System.nanoTime();
+            try {
+                return StatementCapture.capture(sql, call);
+            } finally {
+                dbNanos += System.nanoTime() - started;
+            }
+        }
+
+        public <T> T mapping(Supplier<T> mapping) {
+            long started = System.nanoTime();
+            try {
+                return mapping.get();
+            } finally {
+                mappingNanos += System.nanoTime() - started;
+            }
+        }
+
+        public void addRows(int rows) {
+            this.rows += rows;
+        }
+    }
+
+    @Value
+    public static class SlowQuery {
+        OffsetDateTime timestamp;
+        String shape;
+        int fetchSize;
+        int rows;
+        long dbMillis;
+        long mappingMillis;
+        String sql;
+        String plan;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.source.db;
+
+import io.quarkus.hibernate.orm.PersistenceUnitExtension;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.jboss.pnc.bifrost.common.Reference;
+
+import java.util.function.Supplier;
+
+/**
+ * Captures the SQL of the statements prepared by the current thread while {@link #capture(Reference, Supplier)} runs.
+ * The statements are not modified.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+@PersistenceUnitExtension
+public class StatementCapture implements StatementInspector {
+
+    private static final ThreadLocal<Reference<String>> CAPTURED = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        Reference<String> captured = CAPTURED.get();
+        if (captured != null) {
+            captured.set(sql);
+        }
+        return sql;
+    }
+
+    /**
+     * Run the action and set the last statement it prepared to the given reference.
+     */
+    public static <T> T capture(Reference<String> sql, Supplier<T> action) {
+        CAPTURED.set(sql);
+        try {
+            return action.get();
+        } finally {
+            CAPTURED.remove();
+        }
+    }
+}
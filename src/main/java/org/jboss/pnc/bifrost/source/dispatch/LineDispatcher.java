@@ -0,0 +1,204 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.source.dispatch;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.jboss.pnc.api.bifrost.dto.Line;
+import org.jboss.pnc.bifrost.Config;
+import org.jboss.pnc.bifrost.source.db.FieldMapping;
+import org.jboss.pnc.bifrost.source.db.LineMapper;
+import org.jboss.pnc.bifrost.source.db.LogEntry;
+import org.jboss.pnc.bifrost.source.db.LogLine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans out the lines stored by the Kafka consumer to the live subscriptions, so the subscribers don't have to poll the
+ * database once they have caught up. Feeds are indexed by process context or build id when the subscription filters
+ * on them, the remaining filters are evaluated in memory.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+@ApplicationScoped
+public class LineDispatcher {
+
+    private static final String className = LineDispatcher.class.getName();
+
+    private final Logger logger = LoggerFactory.getLogger(LineDispatcher.class);
+
+    @Inject
+    FieldMapping fieldMapping;
+
+    @Inject
+    Config config;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<Object, Set<LineFeed>> byProcessContext = new ConcurrentHashMap<>();
+
+    private final Map<Object, Set<LineFeed>> byBuildId = new ConcurrentHashMap<>();
+
+    private final Set<LineFeed> unindexed = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger feeds = new AtomicInteger();
+
+    private Counter errCounter;
+
+    private Counter dispatchedCounter;
+
+    @PostConstruct
+    void initMetrics() {
+        errCounter = registry.counter(className + ".error.count");
+        dispatchedCounter = registry.counter(className + ".dispatched.lines");
+        Gauge.builder(className + ".feeds.size", feeds, AtomicInteger::get)
+                .description("current number of registered feeds")
+                .register(registry);
+    }
+
+    /**
+     * Register a feed receiving the stored lines matching the filters.
+     *
+     * @param onPublished called after new lines were added to the feed, it must not block
+     * @throws org.jboss.pnc.bifrost.source.db.InvalidFieldException when the filters contain an unmapped field
+     */
+    public LineFeed register(
+            Map<String, List<String>> matchFilters,
+            Map<String, List<String>> prefixFilters,
+            Runnable onPublished) {
+        LineFilter filter = new LineFilter(fieldMapping, matchFilters, prefixFilters);
+        LineFeed feed = new LineFeed(filter, config.getLiveDispatchQueueSize(), onPublished);
+
+        Set<Object> processContexts = filter.getProcessContexts();
+        Set<Object> buildIds = filter.getBuildIds();
+        if (!processContexts.isEmpty()) {
+            processContexts.forEach(key -> addTo(byProcessContext, key, feed));
+        } else if (!buildIds.isEmpty()) {
+            buildIds.forEach(key -> addTo(byBuildId, key, feed));
+        } else {
+            unindexed.add(feed);
+        }
+        feeds.incrementAndGet();
+        return feed;
+    }
+
+    public void unregister(LineFeed feed) {
+        boolean removed = unindexed.remove(feed);
+        removed |= removeFrom(byProcessContext, feed.getFilter().getProcessContexts(), feed);
+        removed |= removeFrom(byBuildId, feed.getFilter().getBuildIds(), feed);
+        if (removed) {
+            feeds.decrementAndGet();
+        }
+    }
+
+    void onLinesStored(@Observes(during = TransactionPhase.AFTER_SUCCESS) LinesStored event) {
+        try {
+            publish(event.getLogLines());
+        } catch (Exception e) {
+            errCounter.increment();
+            logger.error("Error dispatching stored lines.", e);
+        }
+    }
+
+    public void publish(List<LogLine> logLines) {
+        if (feeds.get() == 0) {
+            return;
+        }
+        Set<LineFeed> updated = new LinkedHashSet<>();
+        for (LogLine logLine : logLines) {
+            Line line = null;
+            for (LineFeed feed : candidates(logLine)) {
+                if (!feed.getFilter().matches(logLine)) {
+                    continue;
+                }
+                if (line == null) {
+                    line = LineMapper.toLine(logLine, false);
+                }
+                // each subscriber gets its own instance, subscribers are allowed to modify the line
+                feed.offer(line.cloneBuilder().build());
+                updated.add(feed);
+                dispatchedCounter.increment();
+            }
+        }
+        logger.debug("Dispatched {} lines to {} feeds.", logLines.size(), updated.size());
+        updated.forEach(LineFeed::notifySubscriber);
+    }
+
+    private Set<LineFeed> candidates(LogLine logLine) {
+        LogEntry logEntry = logLine.getLogEntry();
+        if (logEntry == null) {
+            return unindexed;
+        }
+        Set<LineFeed> processContextFeeds = get(byProcessContext, logEntry.getProcessContext());
+        Set<LineFeed> buildIdFeeds = get(byBuildId, logEntry.getBuildId());
+        if (processContextFeeds.isEmpty() && buildIdFeeds.isEmpty()) {
+            return unindexed;
+        }
+        Set<LineFeed> candidates = new LinkedHashSet<>(processContextFeeds);
+        candidates.addAll(buildIdFeeds);
+        candidates.addAll(unindexed);
+        return candidates;
+    }
+
+    private static Set<LineFeed> get(Map<Object, Set<LineFeed>> index, Object key) {
+        if (key == null) {
+            return Set.of();
+        }
+        return index.getOrDefault(key, Set.of());
+    }
+
+    private static void addTo(Map<Object, Set<LineFeed>> index, Object key, LineFeed feed) {
+        index.compute(key, (k, keyFeeds) -> {
+            if (keyFeeds == null) {
+                keyFeeds = newFeedSet();
+            }
+            keyFeeds.add(feed);
+            return keyFeeds;
+        });
+    }
+
+    private static boolean removeFrom(Map<Object, Set<LineFeed>> index, Set<Object> keys, LineFeed feed) {
+        boolean[] removed = { false };
+        for (Object key : keys) {
+            index.computeIfPresent(key, (k, keyFeeds) -> {
+                removed[0] |= keyFeeds.remove(feed);
+                return keyFeeds.isEmpty() ? null : keyFeeds;
+            });
+        }
+        return removed[0];
+    }
+
+    private static Set<LineFeed> newFeedSet() {
+        return Collections.newSetFromMap(new ConcurrentHashMap<>());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.source.dispatch;
+
+import org.jboss.pnc.api.bifrost.dto.Line;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Lines published for a single subscription. The queue is bounded, when the subscriber doesn't keep up the feed is
+ * marked as overflowed and the subscriber has to catch up from the source.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class LineFeed {
+
+    private final LineFilter filter;
+
+    private final int capacity;
+
+    private final Runnable onPublished;
+
+    private final Queue<Line> lines = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicBoolean notified = new AtomicBoolean();
+
+    private volatile boolean overflowed;
+
+    LineFeed(LineFilter filter, int capacity, Runnable onPublished) {
+        this.filter = filter;
+        this.capacity = capacity;
+        this.onPublished = onPublished;
+    }
+
+    LineFilter getFilter() {
+        return filter;
+    }
+
+    void offer(Line line) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            overflowed = true;
+            return;
+        }
+        lines.add(line);
+    }
+
+    /**
+     * Notify the subscriber, the notification is skipped when the previous one was not consumed yet.
+     */
+    void notifySubscriber() {
+        if (notified.compareAndSet(false, true)) {
+            onPublished.run();
+        }
+    }
+
+    /**
+     * Drop the queued lines if the feed has overflowed.
+     *
+     * @return true if lines were dropped and the subscriber has to catch up from the source
+     */
+    public boolean resetIfOverflowed() {
+        if (!overflowed) {
+            return false;
+        }
+        overflowed = false;
+        while (lines.poll() != null) {
+            size.decrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * Pass up to maxLines queued lines to the consumer.
+     *
+     * @return number of passed lines
+     */
+    public int drain(int maxLines, Consumer<Line> onLine) {
+        notified.set(false);
+        int drained = 0;
+        Line line;
+        while (drained < maxLines && (line = lines.poll()) != null) {
+            size.decrementAndGet();
+            drained++;
+            onLine.accept(line);
+        }
+        return drained;
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+}
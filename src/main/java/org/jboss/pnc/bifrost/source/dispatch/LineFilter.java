@@ -0,0 +1,137 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.source.dispatch;
+
+import org.jboss.pnc.bifrost.source.db.FieldMapping;
+import org.jboss.pnc.bifrost.source.db.InvalidFieldException;
+import org.jboss.pnc.bifrost.source.db.LogLine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory equivalent of the filters applied by the database source. Prefix filters on fields that allow exact match
+ * only are applied as exact match filters, the same way the database source does it.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class LineFilter {
+
+    private static final String PROCESS_CONTEXT_FIELD = "logEntry.processContext";
+
+    private static final String BUILD_ID_FIELD = "logEntry.buildId";
+
+    private final List<Criterion> matchCriteria = new ArrayList<>();
+
+    private final List<Criterion> prefixCriteria = new ArrayList<>();
+
+    public LineFilter(
+            FieldMapping fieldMapping,
+            Map<String, List<String>> matchFilters,
+            Map<String, List<String>> prefixFilters) {
+        matchFilters.forEach((dtoField, values) -> {
+            FieldMapping.Field field = getField(fieldMapping, dtoField);
+            matchCriteria.add(new Criterion(field, convert(field, values)));
+        });
+        prefixFilters.forEach((dtoField, values) -> {
+            FieldMapping.Field field = getField(fieldMapping, dtoField);
+            if (field.allowExactMatchOnly()) {
+                matchCriteria.add(new Criterion(field, convert(field, values)));
+            } else {
+                prefixCriteria.add(new Criterion(field, convert(field, values)));
+            }
+        });
+    }
+
+    public boolean matches(LogLine logLine) {
+        for (Criterion criterion : matchCriteria) {
+            if (!criterion.values.contains(criterion.field.valueOf(logLine))) {
+                return false;
+            }
+        }
+        for (Criterion criterion : prefixCriteria) {
+            Object value = criterion.field.valueOf(logLine);
+            if (value == null) {
+                return false;
+            }
+            String stringValue = value.toString();
+            if (criterion.values.stream().noneMatch(prefix -> stringValue.startsWith(String.valueOf(prefix)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return process contexts the filter is limited to, empty if the filter doesn't limit them
+     */
+    Set<Object> getProcessContexts() {
+        return getMatchValues(PROCESS_CONTEXT_FIELD);
+    }
+
+    /**
+     * @return build ids the filter is limited to, empty if the filter doesn't limit them
+     */
+    Set<Object> getBuildIds() {
+        return getMatchValues(BUILD_ID_FIELD);
+    }
+
+    private Set<Object> getMatchValues(String hqlField) {
+        Set<Object> values = new HashSet<>();
+        for (Criterion criterion : matchCriteria) {
+            if (hqlField.equals(criterion.field.hqlField())) {
+                if (!values.isEmpty()) {
+                    // multiple criteria on the same field must all match, indexing by any of them is enough
+                    return values;
+                }
+                values.addAll(criterion.values);
+            }
+        }
+        values.remove(null);
+        return values;
+    }
+
+    private static FieldMapping.Field getField(FieldMapping fieldMapping, String dtoField) {
+        return fieldMapping.getField(dtoField)
+                .orElseThrow(() -> new InvalidFieldException("The field [" + dtoField + "] is not mapped."));
+    }
+
+    private static Set<Object> convert(FieldMapping.Field field, List<String> values) {
+        Set<Object> converted = new HashSet<>();
+        for (String value : values) {
+            converted.add(field.valueConverter().convert(value));
+        }
+        return Collections.unmodifiableSet(converted);
+    }
+
+    private static class Criterion {
+
+        final FieldMapping.Field field;
+
+        final Set<Object> values;
+
+        Criterion(FieldMapping.Field field, Set<Object> values) {
+            this.field = field;
+            this.values = values;
+        }
+    }
+}
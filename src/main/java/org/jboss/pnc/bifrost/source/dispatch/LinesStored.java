@@ -0,0 +1,40 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.source.dispatch;
+
+import org.jboss.pnc.bifrost.source.db.LogLine;
+
+import java.util.List;
+
+/**
+ * Event fired by the Kafka consumer with the lines stored in the current transaction.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class LinesStored {
+
+    private final List<LogLine> logLines;
+
+    public LinesStored(List<LogLine> logLines) {
+        this.logLines = logLines;
+    }
+
+    public List<LogLine> getLogLines() {
+        return logLines;
+    }
+}
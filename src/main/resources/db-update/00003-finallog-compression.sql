@@ -0,0 +1,6 @@
+-- store final logs compressed
+BEGIN;
+ALTER TABLE finallog ADD COLUMN compression character varying(16);
+ALTER TABLE finallog ADD COLUMN storedsize bigint NOT NULL DEFAULT 0;
+UPDATE finallog SET storedsize = size;
+COMMIT;
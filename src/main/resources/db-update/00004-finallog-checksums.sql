@@ -0,0 +1,6 @@
+-- store checksums of final logs calculated on upload
+BEGIN;
+ALTER TABLE finallog ADD COLUMN sha1sum character varying(40);
+ALTER TABLE finallog ADD COLUMN sha256sum character varying(64);
+ALTER TABLE finallog ADD COLUMN sha512sum character varying(128);
+COMMIT;
@@ -0,0 +1,37 @@
+-- multipart upload of final logs
+BEGIN;
+CREATE TABLE finalloguploadsession (
+    id bigint NOT NULL,
+    logentry_id bigint NOT NULL,
+    eventtimestamp timestamp(6) with time zone NOT NULL,
+    loggername character varying(255) NOT NULL,
+    md5sum character varying(32) NOT NULL,
+    tags character varying(255) NOT NULL,
+    created timestamp(6) with time zone NOT NULL
+);
+
+ALTER TABLE ONLY finalloguploadsession ADD CONSTRAINT finalloguploadsession_pkey PRIMARY KEY (id);
+
+ALTER TABLE ONLY finalloguploadsession
+    ADD CONSTRAINT fk_finalloguploadsession_logentry FOREIGN KEY (logentry_id) REFERENCES logentry(id);
+
+CREATE TABLE finalloguploadpart (
+    id bigint NOT NULL,
+    session_id bigint NOT NULL,
+    partnumber integer NOT NULL,
+    size bigint NOT NULL,
+    md5sum character varying(32) NOT NULL,
+    content oid
+);
+
+ALTER TABLE ONLY finalloguploadpart ADD CONSTRAINT finalloguploadpart_pkey PRIMARY KEY (id);
+
+ALTER TABLE ONLY finalloguploadpart
+    ADD CONSTRAINT uk_finalloguploadpart_session_partnumber UNIQUE (session_id, partnumber);
+
+ALTER TABLE ONLY finalloguploadpart
+    ADD CONSTRAINT fk_finalloguploadpart_session FOREIGN KEY (session_id) REFERENCES finalloguploadsession(id);
+
+CREATE INDEX idx_finalloguploadsession_created ON finalloguploadsession(created);
+
+COMMIT;
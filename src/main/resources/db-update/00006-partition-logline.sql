@@ -0,0 +1,79 @@
+-- partition LogLine by the event timestamp
+-- The existing table becomes the partition for all the lines before the cutover, monthly partitions follow.
+-- Their names use the month in UTC, the same as the partitions created by the application.
+
+-- Step 1: prepare the existing table, run it outside of a transaction block. The index is built and the constraints
+-- are validated while the lines are being inserted, the ingest is not blocked.
+SET TimeZone = 'UTC';
+
+-- the primary key of a partitioned table must include the partition key
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS logline_legacy_pkey_new ON logline (id, eventtimestamp);
+
+-- the partition key can't be null, a valid check constraint lets SET NOT NULL skip the scan
+ALTER TABLE logline ADD CONSTRAINT logline_eventtimestamp_not_null CHECK (eventtimestamp IS NOT NULL) NOT VALID;
+ALTER TABLE logline VALIDATE CONSTRAINT logline_eventtimestamp_not_null;
+
+-- the range of the legacy partition, a valid constraint lets the attach skip the validation scan
+-- the cutover leaves a month to run step 2, the lines must not be more than a month ahead until then
+DO $$
+BEGIN
+    EXECUTE format(
+        'ALTER TABLE logline ADD CONSTRAINT logline_legacy_range CHECK (eventtimestamp < %L) NOT VALID',
+        date_trunc('month', now()) + interval '2 months');
+END $$;
+ALTER TABLE logline VALIDATE CONSTRAINT logline_legacy_range;
+
+-- Step 2: partition the table. Only metadata is changed while the table is locked.
+BEGIN;
+SET LOCAL TimeZone = 'UTC';
+
+ALTER TABLE logline RENAME TO logline_legacy;
+ALTER INDEX IF EXISTS idx_logline_eventtimestamp RENAME TO idx_logline_legacy_eventtimestamp;
+ALTER INDEX IF EXISTS idx_logline_sequence RENAME TO idx_logline_legacy_sequence;
+ALTER INDEX IF EXISTS idx_logline_loggername RENAME TO idx_logline_legacy_loggername;
+ALTER INDEX IF EXISTS idx_logline_fkey_logentry_id RENAME TO idx_logline_legacy_fkey_logentry_id;
+ALTER TABLE logline_legacy ALTER COLUMN eventtimestamp SET NOT NULL;
+ALTER TABLE logline_legacy DROP CONSTRAINT logline_eventtimestamp_not_null;
+-- the primary key built in step 1 replaces the one on id
+ALTER TABLE logline_legacy DROP CONSTRAINT logline_pkey;
+ALTER TABLE logline_legacy ADD CONSTRAINT logline_legacy_pkey PRIMARY KEY USING INDEX logline_legacy_pkey_new;
+
+CREATE TABLE logline (LIKE logline_legacy INCLUDING DEFAULTS) PARTITION BY RANGE (eventtimestamp);
+
+ALTER TABLE ONLY logline ADD CONSTRAINT logline_pkey PRIMARY KEY (id, eventtimestamp);
+-- LIKE does not copy the foreign keys, the one of the legacy partition is reused when it is attached
+ALTER TABLE logline ADD FOREIGN KEY (logentry_id) REFERENCES logentry(id);
+
+-- the matching indexes of the legacy partition, including its primary key, are reused when it is attached
+CREATE INDEX idx_logline_eventtimestamp ON logline(eventtimestamp);
+CREATE INDEX idx_logline_sequence ON logline(sequence);
+CREATE INDEX idx_logline_loggername ON logline(loggername);
+CREATE INDEX idx_logline_fkey_logentry_id ON logline(logentry_id);
+
+DO $$
+DECLARE
+    -- the upper bound of the range constraint added in step 1
+    cutover timestamptz := (
+        SELECT cast(substring(pg_get_constraintdef(oid) from '''([^'']+)''') as timestamptz)
+        FROM pg_constraint
+        WHERE conname = 'logline_legacy_range' AND conrelid = 'logline_legacy'::regclass);
+    month_start timestamptz := cutover;
+BEGIN
+    EXECUTE format(
+        'ALTER TABLE logline ATTACH PARTITION logline_legacy FOR VALUES FROM (MINVALUE) TO (%L)',
+        cutover);
+
+    WHILE month_start < cutover + interval '3 months' LOOP
+        EXECUTE format(
+            'CREATE TABLE %I PARTITION OF logline FOR VALUES FROM (%L) TO (%L)',
+            'logline_p' || to_char(month_start, 'YYYYMM'),
+            month_start,
+            month_start + interval '1 month');
+        month_start := month_start + interval '1 month';
+    END LOOP;
+END $$;
+
+-- no default partition, the partitions of the next months are created ahead by the application and a default
+-- partition holding lines of a month would make creating that month fail
+
+COMMIT;
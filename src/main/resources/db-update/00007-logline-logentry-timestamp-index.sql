@@ -0,0 +1,44 @@
+-- composite index for reading the lines of log entries in the order of the events
+-- The lines are read by an index range scan per log entry, the included columns are used by the line filters.
+-- The index on logentry_id alone is replaced as it is the prefix of the new one.
+-- Run the script with psql outside of a transaction block, the indexes of the partitions are built concurrently and
+-- the ingest is not blocked.
+
+-- Step 1: the index of the partitioned table only, it is not valid until the index of every partition is attached
+-- Partitions created from now on get their index with the table.
+CREATE INDEX IF NOT EXISTS idx_logline_logentry_timestamp ON ONLY logline(logentry_id, eventtimestamp, sequence, id)
+    INCLUDE (loggername, level_id);
+
+-- Step 2: build the index of each partition which does not have one attached yet
+SELECT format(
+        'CREATE INDEX CONCURRENTLY IF NOT EXISTS %I ON %I(logentry_id, eventtimestamp, sequence, id)'
+            || ' INCLUDE (loggername, level_id)',
+        'idx_' || child.relname || '_logentry_timestamp',
+        child.relname)
+FROM pg_inherits JOIN pg_class child ON child.oid = pg_inherits.inhrelid
+WHERE pg_inherits.inhparent = 'logline'::regclass
+    AND NOT EXISTS (
+        SELECT 1 FROM pg_inherits attached JOIN pg_index idx ON idx.indexrelid = attached.inhrelid
+        WHERE attached.inhparent = 'idx_logline_logentry_timestamp'::regclass AND idx.indrelid = child.oid)
+\gexec
+
+-- Step 3: attach the indexes of the partitions, each attach only changes metadata
+SELECT format(
+        'ALTER INDEX idx_logline_logentry_timestamp ATTACH PARTITION %I',
+        'idx_' || child.relname || '_logentry_timestamp')
+FROM pg_inherits JOIN pg_class child ON child.oid = pg_inherits.inhrelid
+WHERE pg_inherits.inhparent = 'logline'::regclass
+    AND NOT EXISTS (
+        SELECT 1 FROM pg_inherits attached JOIN pg_index idx ON idx.indexrelid = attached.inhrelid
+        WHERE attached.inhparent = 'idx_logline_logentry_timestamp'::regclass AND idx.indrelid = child.oid)
+\gexec
+
+-- Step 4: drop the replaced index once the new one is valid, the index of the partitioned table can't be dropped
+-- concurrently but the drop does not scan the table
+DO $$
+BEGIN
+    IF NOT (SELECT indisvalid FROM pg_index WHERE indexrelid = 'idx_logline_logentry_timestamp'::regclass) THEN
+        RAISE EXCEPTION 'idx_logline_logentry_timestamp is not attached to all the partitions yet, rerun the script';
+    END IF;
+END $$;
+DROP INDEX IF EXISTS idx_logline_fkey_logentry_id;
@@ -0,0 +1,70 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.common;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+/**
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class ByteRangeTest {
+
+    @Test
+    public void shouldParseRanges() {
+        ByteRange range = ByteRange.parse("bytes=10-19", 100).get();
+        Assertions.assertEquals(10, range.getStart());
+        Assertions.assertEquals(19, range.getEnd());
+        Assertions.assertEquals(10, range.getLength());
+        Assertions.assertEquals("bytes 10-19/100", range.contentRange());
+
+        ByteRange open = ByteRange.parse("bytes=90-", 100).get();
+        Assertions.assertEquals(90, open.getStart());
+        Assertions.assertEquals(99, open.getEnd());
+
+        ByteRange suffix = ByteRange.parse("bytes=-30", 100).get();
+        Assertions.assertEquals(70, suffix.getStart());
+        Assertions.assertEquals(30, suffix.getLength());
+
+        ByteRange clipped = ByteRange.parse("bytes=50-500", 100).get();
+        Assertions.assertEquals(99, clipped.getEnd());
+
+        ByteRange longerSuffix = ByteRange.parse("bytes=-500", 100).get();
+        Assertions.assertEquals(0, longerSuffix.getStart());
+        Assertions.assertEquals(100, longerSuffix.getLength());
+    }
+
+    @Test
+    public void shouldIgnoreUnsupportedHeaders() {
+        Assertions.assertEquals(Optional.empty(), ByteRange.parse(null, 100));
+        Assertions.assertEquals(Optional.empty(), ByteRange.parse("items=0-10", 100));
+        Assertions.assertEquals(Optional.empty(), ByteRange.parse("bytes=0-10,20-30", 100));
+        Assertions.assertEquals(Optional.empty(), ByteRange.parse("bytes=20-10", 100));
+        Assertions.assertEquals(Optional.empty(), ByteRange.parse("bytes=a-b", 100));
+    }
+
+    @Test
+    public void shouldNotSatisfyRangeAfterContent() {
+        ByteRange range = ByteRange.parse("bytes=100-", 100).get();
+        Assertions.assertFalse(range.isSatisfiable());
+        Assertions.assertEquals("bytes */100", range.contentRange());
+        Assertions.assertFalse(ByteRange.parse("bytes=-0", 100).get().isSatisfiable());
+    }
+}
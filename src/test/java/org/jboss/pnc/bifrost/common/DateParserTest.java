@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.common;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class DateParserTest {
+
+    @Test
+    public void shouldParseIsoTimestamps() {
+        Assertions.assertEquals(
+                Instant.parse("2022-04-27T22:15:47.536Z"),
+                DateParser.parseTime("2022-04-27T22:15:47.536Z"));
+        Assertions.assertEquals(Instant.parse("2022-04-27T22:15:47Z"), DateParser.parseTime("2022-04-27T22:15:47Z"));
+        Assertions.assertEquals(
+                Instant.parse("2022-04-27T22:15:47.123456789Z"),
+                DateParser.parseTime("2022-04-27T22:15:47.123456789Z"));
+        Assertions.assertEquals(
+                Instant.parse("2022-04-27T20:15:47.536Z"),
+                DateParser.parseTime("2022-04-27T22:15:47.536+02:00"));
+        Assertions.assertEquals(
+                Instant.parse("2022-04-28T00:45:47.536Z"),
+                DateParser.parseTime("2022-04-27T22:15:47.536-0230"));
+    }
+
+    @Test
+    public void shouldMatchFormatters() {
+        String[] times = { "2022-06-23T12:19:54.687Z", "2020-02-29T23:59:59.999+01:00", "1999-12-31T00:00:00.000-0500" };
+        for (String time : times) {
+            Instant expected = null;
+            DateTimeFormatter[] formatters = { DateTimeFormatter.ISO_OFFSET_DATE_TIME,
+                    DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSZ") };
+            for (DateTimeFormatter formatter : formatters) {
+                try {
+                    expected = OffsetDateTime.parse(time, formatter).toInstant();
+                    break;
+                } catch (DateTimeException e) {
+                    // try next one
+                }
+            }
+            Assertions.assertEquals(expected, DateParser.parseIsoOffsetDateTime(time), time);
+        }
+    }
+
+    @Test
+    public void shouldFallBackToFormatters() {
+        Assertions.assertNull(DateParser.parseIsoOffsetDateTime("2022-02-30T22:15:47.536Z"));
+        Assertions.assertNull(DateParser.parseIsoOffsetDateTime("2022-04-27 22:15:47.536Z"));
+        Assertions.assertThrows(DateTimeException.class, () -> DateParser.parseTime("not a date"));
+    }
+}
@@ -0,0 +1,58 @@
+package org.jboss.pnc.bifrost.common;
+
+import jakarta.xml.bind.DatatypeConverter;
+import org.jboss.pnc.api.bifrost.dto.Checksums;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DigestsTest {
+
+    @Test
+    void shouldContinueFromCopiedState() throws Exception {
+        Digests digests = Digests.create();
+        digest(digests, "hello");
+
+        Digests continued = digests.copy();
+        digest(continued, "world");
+
+        assertChecksums("hello", digests.checksums());
+        assertChecksums("helloworld", continued.checksums());
+        // the state is not reset by getting the checksums
+        assertChecksums("helloworld", continued.checksums());
+    }
+
+    @Test
+    void shouldCalculateChecksumsWhileValidating() throws Exception {
+        String md5sum = hex("MD5", "hello");
+        ChecksumValidatingStream stream = ChecksumValidatingStream
+                .validate(new ByteArrayInputStream("hello".getBytes()), md5sum);
+        stream.transferTo(OutputStream.nullOutputStream());
+
+        stream.validate();
+        assertChecksums("hello", stream.getChecksums());
+    }
+
+    private static void digest(Digests digests, String text) throws Exception {
+        try (InputStream stream = digests.digesting(new ByteArrayInputStream(text.getBytes()))) {
+            stream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private static void assertChecksums(String text, Checksums checksums) throws Exception {
+        assertEquals(hex("MD5", text), checksums.getMd5());
+        assertEquals(hex("SHA-1", text), checksums.getSha1());
+        assertEquals(hex("SHA-256", text), checksums.getSha256());
+        assertEquals(hex("SHA-512", text), checksums.getSha512());
+    }
+
+    private static String hex(String algorithm, String text) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance(algorithm);
+        return DatatypeConverter.printHexBinary(digest.digest(text.getBytes())).toLowerCase();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.common.scheduler;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class CreditsTest {
+
+    @Test
+    public void shouldPauseUntilHalfDrained() {
+        AtomicInteger resumed = new AtomicInteger();
+        Credits credits = new Credits(4);
+        credits.addResumeListener(resumed::incrementAndGet);
+
+        for (int i = 0; i < 4; i++) {
+            credits.take();
+        }
+        Assertions.assertEquals(0, credits.available());
+
+        credits.release();
+        Assertions.assertEquals(0, resumed.get());
+        credits.release();
+        Assertions.assertEquals(1, resumed.get());
+        Assertions.assertEquals(2, credits.available());
+
+        credits.release();
+        Assertions.assertEquals(1, resumed.get(), "Should resume only when paused.");
+    }
+
+    @Test
+    public void shouldNotResumeWhenNotPaused() {
+        AtomicInteger resumed = new AtomicInteger();
+        Credits credits = new Credits(4);
+        credits.addResumeListener(resumed::incrementAndGet);
+
+        for (int i = 0; i < 4; i++) {
+            credits.take();
+        }
+        for (int i = 0; i < 4; i++) {
+            credits.release();
+        }
+        Assertions.assertEquals(0, resumed.get());
+        Assertions.assertEquals(4, credits.available());
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.common.scheduler;
+
+import org.jboss.pnc.bifrost.mock.BackOffRunnableConfigFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class ScheduledPollTest {
+
+    private final BackOffRunnableConfig config = BackOffRunnableConfigFactory.get(100L, 100, 60000, 100L);
+
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+
+    @AfterEach
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void shouldRunWhenDueAndOnResult() throws InterruptedException {
+        Semaphore runs = new Semaphore(0);
+        BackOffRunnable backOffRunnable = new BackOffRunnable(config);
+        backOffRunnable.setRunnable(runs::release); // no results
+        ScheduledPoll poll = new ScheduledPoll(scheduler, null, backOffRunnable, 100L);
+
+        poll.start();
+        TimeUnit.MILLISECONDS.sleep(1000);
+        // due at 0, 100, 300 and 700 ms, woken at every poll interval it would be 10 times
+        int backedOff = runs.drainPermits();
+        Assertions.assertTrue(backedOff >= 3 && backedOff <= 5, "Unexpected number of runs: " + backedOff);
+        Assertions.assertEquals(1, scheduler.getQueue().size());
+
+        // the next run is due in 800 ms, a result brings it forward to the poll interval
+        backOffRunnable.receivedResult();
+        Assertions.assertTrue(runs.tryAcquire(400, TimeUnit.MILLISECONDS));
+        poll.cancel();
+    }
+
+    @Test
+    public void shouldRemoveCancelledRun() throws InterruptedException {
+        scheduler.setRemoveOnCancelPolicy(true);
+        AtomicInteger runs = new AtomicInteger();
+        BackOffRunnable backOffRunnable = new BackOffRunnable(config);
+        backOffRunnable.setRunnable(runs::incrementAndGet);
+        ScheduledPoll poll = new ScheduledPoll(scheduler, null, backOffRunnable, 100L);
+
+        poll.start();
+        TimeUnit.MILLISECONDS.sleep(150);
+        poll.cancel();
+        int runsBeforeCancel = runs.get();
+        TimeUnit.MILLISECONDS.sleep(500);
+
+        Assertions.assertEquals(runsBeforeCancel, runs.get());
+        Assertions.assertTrue(scheduler.getQueue().isEmpty());
+    }
+}
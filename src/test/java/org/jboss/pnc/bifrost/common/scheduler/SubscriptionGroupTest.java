@@ -0,0 +1,263 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.common.scheduler;
+
+import org.jboss.pnc.bifrost.mock.BackOffRunnableConfigFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class SubscriptionGroupTest {
+
+    private final BackOffRunnableConfig config = BackOffRunnableConfigFactory.get(100L, 5, 60000, 100L);
+
+    private final List<Integer> data = new ArrayList<>();
+
+    private final AtomicInteger sourceReads = new AtomicInteger();
+
+    @Test
+    public void shouldServeMembersFromSinglePoll() {
+        addData(1, 5);
+        SubscriptionGroup<Integer> group = newGroup();
+
+        List<Integer> resultsA = new ArrayList<>();
+        List<Integer> resultsB = new ArrayList<>();
+        group.add(new Subscription("A", "", () -> {}), this::read, null, collect(resultsA));
+        group.add(new Subscription("B", "", () -> {}), this::read, 2, collect(resultsB));
+
+        // both members catch up on their own and join the group
+        group.run();
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5), resultsA);
+        Assertions.assertEquals(List.of(3, 4, 5), resultsB);
+
+        addData(6, 7);
+        sourceReads.set(0);
+        group.run();
+        Assertions.assertEquals(1, sourceReads.get());
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5, 6, 7), resultsA);
+        Assertions.assertEquals(List.of(3, 4, 5, 6, 7), resultsB);
+    }
+
+    @Test
+    public void shouldNotRepeatResultsToJoiningMember() {
+        addData(1, 3);
+        SubscriptionGroup<Integer> group = newGroup();
+
+        List<Integer> resultsA = new ArrayList<>();
+        group.add(new Subscription("A", "", () -> {}), this::read, null, collect(resultsA));
+        group.run();
+
+        addData(4, 5);
+        List<Integer> resultsB = new ArrayList<>();
+        group.add(new Subscription("B", "", () -> {}), this::read, null, collect(resultsB));
+        group.run();
+
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5), resultsA);
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5), resultsB);
+
+        addData(6, 6);
+        group.run();
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5, 6), resultsA);
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5, 6), resultsB);
+    }
+
+    @Test
+    public void shouldCatchUpPausedMember() {
+        addData(1, 3);
+        SubscriptionGroup<Integer> group = newGroup();
+
+        List<Integer> resultsA = new ArrayList<>();
+        List<Integer> resultsB = new ArrayList<>();
+        Credits creditsB = new Credits(2);
+        group.add(new Subscription("A", "", () -> {}), this::read, null, collect(resultsA));
+        group.add(new Subscription("B", "", () -> {}, creditsB), this::read, null, result -> {
+            if (result != null) {
+                creditsB.take();
+                resultsB.add(result);
+            }
+        });
+        group.run();
+
+        // the consumer of B did not write out its results
+        addData(4, 5);
+        group.run();
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5), resultsA);
+        Assertions.assertEquals(List.of(1, 2, 3), resultsB);
+
+        drain(creditsB);
+        group.run();
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5), resultsB);
+
+        drain(creditsB);
+        addData(6, 6);
+        sourceReads.set(0);
+        group.run();
+        Assertions.assertEquals(1, sourceReads.get());
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5, 6), resultsA);
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5, 6), resultsB);
+    }
+
+    @Test
+    public void shouldNotDeliverSharedResultsOverCredits() {
+        addData(1, 1);
+        SubscriptionGroup<Integer> group = newGroup();
+
+        List<Integer> resultsA = new ArrayList<>();
+        List<Integer> resultsB = new ArrayList<>();
+        Credits creditsB = new Credits(2);
+        group.add(new Subscription("A", "", () -> {}), this::read, null, collect(resultsA));
+        group.add(new Subscription("B", "", () -> {}, creditsB), this::read, null, result -> {
+            if (result != null) {
+                creditsB.take();
+                resultsB.add(result);
+            }
+        });
+        group.run();
+        drain(creditsB);
+
+        // a single shared read returns more results than B has credits
+        addData(2, 5);
+        group.run();
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5), resultsA);
+        Assertions.assertEquals(List.of(1, 2, 3), resultsB);
+        Assertions.assertEquals(2, creditsB.getOutstanding());
+
+        drain(creditsB);
+        group.run();
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5), resultsB);
+    }
+
+    @Test
+    public void shouldNotHoldGroupWhileMemberCatchesUp() {
+        addData(1, 3);
+        List<Runnable> catchUps = new ArrayList<>();
+        SubscriptionGroup<Integer> group = newGroup(catchUps::add);
+
+        List<Integer> resultsA = new ArrayList<>();
+        group.add(new Subscription("A", "", () -> {}), this::read, null, collect(resultsA));
+        group.run();
+        catchUps.remove(0).run();
+        Assertions.assertEquals(List.of(1, 2, 3), resultsA);
+
+        List<Integer> resultsB = new ArrayList<>();
+        group.add(new Subscription("B", "", () -> {}), parameters -> {
+            Assertions.assertFalse(Thread.holdsLock(group));
+            read(parameters);
+        }, null, collect(resultsB));
+        addData(4, 5);
+        group.run();
+        group.run();
+        // the joined member is served while the other one waits for its catch-up, it is submitted only once
+        Assertions.assertEquals(1, catchUps.size());
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5), resultsA);
+        Assertions.assertTrue(resultsB.isEmpty());
+
+        catchUps.remove(0).run();
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5), resultsB);
+
+        addData(6, 6);
+        sourceReads.set(0);
+        group.run();
+        Assertions.assertTrue(catchUps.isEmpty());
+        Assertions.assertEquals(1, sourceReads.get());
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5, 6), resultsA);
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5, 6), resultsB);
+    }
+
+    @Test
+    public void shouldCancelWhenEmpty() {
+        SubscriptionGroup<Integer> group = newGroup();
+        Subscription subscriptionA = new Subscription("A", "", () -> {});
+        Subscription subscriptionB = new Subscription("B", "", () -> {});
+        group.add(subscriptionA, this::read, null, r -> {});
+        group.add(subscriptionB, this::read, null, r -> {});
+
+        Assertions.assertFalse(group.remove(subscriptionA));
+        Assertions.assertTrue(group.remove(subscriptionB));
+    }
+
+    private static void drain(Credits credits) {
+        while (credits.getOutstanding() > 0) {
+            credits.release();
+        }
+    }
+
+    private SubscriptionGroup<Integer> newGroup() {
+        // the catch-up reads run in the calling thread
+        return newGroup(Runnable::run);
+    }
+
+    private SubscriptionGroup<Integer> newGroup(Executor catchUpExecutor) {
+        Consumer<Subscriptions.TaskParameters<Integer>> sharedRead = parameters -> {
+            sourceReads.incrementAndGet();
+            read(parameters);
+        };
+        SharedTask<Integer> sharedTask = new SharedTask<>(
+                "key",
+                sharedRead,
+                Comparator.naturalOrder(),
+                result -> result.equals(data.get(data.size() - 1)),
+                result -> result);
+        SubscriptionGroup<Integer> group = new SubscriptionGroup<>(
+                sharedTask,
+                new BackOffRunnable(config),
+                catchUpExecutor);
+        group.setCancel(() -> {});
+        return group;
+    }
+
+    private void read(Subscriptions.TaskParameters<Integer> parameters) {
+        Integer lastResult = parameters.getLastResult();
+        boolean found = false;
+        for (Integer value : data) {
+            if (lastResult == null || value > lastResult) {
+                parameters.getResultConsumer().accept(value);
+                found = true;
+            }
+        }
+        if (!found) {
+            parameters.getResultConsumer().accept(null);
+        }
+    }
+
+    /**
+     * Null results indicate there was no data.
+     */
+    private Consumer<Integer> collect(List<Integer> results) {
+        return result -> {
+            if (result != null) {
+                results.add(result);
+            }
+        };
+    }
+
+    private void addData(int from, int to) {
+        for (int i = from; i <= to; i++) {
+            data.add(i);
+        }
+    }
+}
@@ -25,12 +25,18 @@ import org.slf4j.LoggerFactory;
 
 import jakarta.inject.Inject;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 /**
@@ -74,4 +80,49 @@ public class SubscriptionsTest {
 
         subscriptions.unsubscribeAll();
     }
+
+    @Test
+    public void shouldNotRepeatResultsWhenTriggeredConcurrently() throws InterruptedException {
+        List<Integer> results = Collections.synchronizedList(new ArrayList<>());
+        Subscription subscription = new Subscription("1", "B", () -> {});
+
+        // reads the cursor under the lock like the source reads of DataProvider do
+        ReentrantLock runLock = new ReentrantLock();
+        Consumer<Subscriptions.TaskParameters<Integer>> task = (parameters) -> {
+            // a run started concurrently can take the lock first
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(TimeUnit.MILLISECONDS.toNanos(2)));
+            if (!runLock.tryLock()) {
+                return;
+            }
+            try {
+                Integer last = parameters.getLastResult();
+                int from = last == null ? 0 : last + 1;
+                for (int i = from; i < Math.min(from + 5, 10000); i++) {
+                    parameters.getResultConsumer().accept(i);
+                }
+            } finally {
+                runLock.unlock();
+            }
+        };
+        subscriptions
+                .subscribe(subscription, task, Optional.empty(), results::add, backOffRunnableConfig, Optional.empty());
+
+        ExecutorService triggers = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 2000; i++) {
+            triggers.submit(() -> subscriptions.trigger(subscription));
+        }
+        triggers.shutdown();
+        Assertions.assertTrue(triggers.awaitTermination(30, TimeUnit.SECONDS));
+        Thread.sleep(500);
+        subscriptions.unsubscribe(subscription);
+
+        List<Integer> received;
+        synchronized (results) {
+            received = new ArrayList<>(results);
+        }
+        Assertions.assertFalse(received.isEmpty());
+        for (int i = 0; i < received.size(); i++) {
+            Assertions.assertEquals(i, received.get(i), "Results repeated or skipped.");
+        }
+    }
 }
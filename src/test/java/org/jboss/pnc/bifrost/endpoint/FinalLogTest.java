@@ -1,21 +1,33 @@
 package org.jboss.pnc.bifrost.endpoint;
 
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.xml.bind.DatatypeConverter;
 import org.hibernate.engine.jdbc.proxy.BlobProxy;
 import org.jboss.pnc.api.bifrost.dto.Checksums;
 import org.jboss.pnc.bifrost.source.db.FinalLog;
+import org.jboss.pnc.bifrost.source.db.FinalLogUploadPart;
+import org.jboss.pnc.bifrost.source.db.FinalLogUploadSession;
 import org.jboss.pnc.bifrost.source.db.LogEntry;
 import org.jboss.pnc.common.concurrent.Sequence;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import jakarta.persistence.LockModeType;
 import jakarta.transaction.Transactional;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.time.OffsetDateTime;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
 
 @QuarkusTest
 public class FinalLogTest {
@@ -100,6 +112,12 @@ public class FinalLogTest {
         long deleted = FinalLog.deleteByProcessContext(processContext, "build", false);
 
         Assertions.assertEquals(2, deleted);
+        Number remainingTags = (Number) FinalLog.getEntityManager()
+                .createNativeQuery("select count(*) from finallog_tags where finallog_id = :id")
+                .setParameter("id", thirdLog.id)
+                .getSingleResult();
+        Assertions.assertEquals(1, remainingTags.intValue());
+        Assertions.assertEquals(1, FinalLog.count("logEntry", logEntry));
     }
 
     @Test
@@ -170,6 +188,169 @@ public class FinalLogTest {
         Assertions.assertEquals(sha512Digest, checksums.getSha512());
     }
 
+    @Test
+    @Transactional
+    void shouldCopyRangeOfParts() throws Exception {
+        long processContext = 1323129L;
+        LogEntry logEntry = createLogEntry(processContext, "0");
+
+        createFinalLog("hello", logEntry, "a", "build").size = 5;
+        createFinalLog("big ", logEntry, "b", "build").size = 4;
+        createFinalLog("world", logEntry, "c", "build").size = 5;
+
+        Assertions.assertEquals("llo", copyRange(processContext, 2, 3));
+        Assertions.assertEquals("lobig w", copyRange(processContext, 3, 7));
+        Assertions.assertEquals("world", copyRange(processContext, 9, 5));
+        Assertions.assertEquals("hellobig world", copyRange(processContext, 0, 14));
+    }
+
+    @Test
+    @Transactional
+    void shouldDecompressStoredParts() throws Exception {
+        long processContext = 1323130L;
+        LogEntry logEntry = createLogEntry(processContext, "0");
+
+        createFinalLog("hello", logEntry, "a", "build").size = 5;
+        FinalLog compressed = createFinalLog("", logEntry, "b", "build");
+        compressed.logContent = BlobProxy.generateProxy(gzip("big world"));
+        compressed.compression = FinalLog.GZIP;
+        compressed.size = 9;
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        FinalLog.copyFinalLogsToOutputStream(processContext, "build", outputStream);
+        Assertions.assertEquals("hellobig world", outputStream.toString(StandardCharsets.UTF_8));
+        Assertions.assertEquals("lobig w", copyRange(processContext, 3, 7));
+
+        MessageDigest md5 = MessageDigest.getInstance("MD5");
+        var md5Digest = DatatypeConverter.printHexBinary(md5.digest("hellobig world".getBytes())).toLowerCase();
+        Assertions.assertEquals(md5Digest, FinalLog.getChecksums(processContext, "build").getMd5());
+    }
+
+    @Test
+    @Transactional
+    void shouldConcatenateUploadedParts() throws Exception {
+        FinalLogUploadSession session = createUploadSession(createLogEntry(1323131L, "0"));
+
+        createUploadPart(session, 2, "world");
+        createUploadPart(session, 1, "hello");
+
+        List<FinalLogUploadPart> parts = FinalLogUploadPart.listBySession(session);
+        String content = new String(FinalLogUploadPart.concatenate(parts).readAllBytes(), StandardCharsets.UTF_8);
+        Assertions.assertEquals("helloworld", content);
+
+        List<?> contentOids = FinalLogUploadPart.getEntityManager()
+                .createNativeQuery("select content from finalloguploadpart where session_id = :session")
+                .setParameter("session", session.id)
+                .getResultList();
+        Assertions.assertEquals(2, contentOids.size());
+
+        session.deleteWithParts();
+        Assertions.assertEquals(0, FinalLogUploadPart.count("session", session));
+        Number largeObjects = (Number) FinalLogUploadPart.getEntityManager()
+                .createNativeQuery("select count(*) from pg_largeobject_metadata where cast(oid as bigint) in (:oids)")
+                .setParameter("oids", contentOids)
+                .getSingleResult();
+        Assertions.assertEquals(0, largeObjects.intValue(), "Content of the parts was not removed.");
+    }
+
+    @Test
+    void shouldReplaceConcurrentlyReuploadedPart() throws Exception {
+        long sessionId = QuarkusTransaction.requiringNew()
+                .call(() -> createUploadSession(createLogEntry(1323132L, "0")).id);
+
+        CountDownLatch firstUploading = new CountDownLatch(1);
+        AtomicReference<Object> firstOid = new AtomicReference<>();
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> QuarkusTransaction.requiringNew().run(() -> {
+            reuploadPart(sessionId, 1, "hello");
+            firstOid.set(getContentOid(sessionId));
+            firstUploading.countDown();
+            try {
+                // the retry starts while the first upload is not committed
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }));
+        Assertions.assertTrue(firstUploading.await(10, TimeUnit.SECONDS));
+        QuarkusTransaction.requiringNew().run(() -> reuploadPart(sessionId, 1, "hi"));
+        first.get(10, TimeUnit.SECONDS);
+
+        QuarkusTransaction.requiringNew().run(() -> {
+            FinalLogUploadSession session = FinalLogUploadSession.findById(sessionId);
+            List<FinalLogUploadPart> parts = FinalLogUploadPart.listBySession(session);
+            Assertions.assertEquals(1, parts.size());
+            try {
+                String content = new String(
+                        FinalLogUploadPart.concatenate(parts).readAllBytes(),
+                        StandardCharsets.UTF_8);
+                Assertions.assertEquals("hi", content);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            Number largeObjects = (Number) FinalLogUploadPart.getEntityManager()
+                    .createNativeQuery("select count(*) from pg_largeobject_metadata where oid = cast(:oid as oid)")
+                    .setParameter("oid", ((Number) firstOid.get()).longValue())
+                    .getSingleResult();
+            Assertions.assertEquals(0, largeObjects.intValue(), "Content of the replaced part was not removed.");
+            session.deleteWithParts();
+        });
+    }
+
+    private static Object getContentOid(long sessionId) {
+        return FinalLogUploadPart.getEntityManager()
+                .createNativeQuery("select content from finalloguploadpart where session_id = :session")
+                .setParameter("session", sessionId)
+                .getSingleResult();
+    }
+
+    /**
+     * Replace the part the same way as the upload endpoint.
+     */
+    private static void reuploadPart(long sessionId, int partNumber, String text) {
+        FinalLogUploadSession session = FinalLogUploadSession.findById(sessionId, LockModeType.PESSIMISTIC_READ);
+        FinalLogUploadPart.deleteBySessionAndNumber(session, partNumber);
+        createUploadPart(session, partNumber, text);
+        FinalLogUploadPart.flush();
+    }
+
+    private static FinalLogUploadSession createUploadSession(LogEntry logEntry) {
+        FinalLogUploadSession session = new FinalLogUploadSession();
+        session.id = Sequence.nextId();
+        session.logEntry = logEntry;
+        session.eventTimestamp = OffsetDateTime.now();
+        session.loggerName = "a";
+        session.md5sum = "a";
+        session.tags = "build";
+        session.created = OffsetDateTime.now();
+        session.persist();
+        return session;
+    }
+
+    private static void createUploadPart(FinalLogUploadSession session, int partNumber, String text) {
+        FinalLogUploadPart part = new FinalLogUploadPart();
+        part.id = Sequence.nextId();
+        part.session = session;
+        part.partNumber = partNumber;
+        part.md5sum = "a";
+        part.size = text.length();
+        part.content = BlobProxy.generateProxy(text.getBytes(StandardCharsets.UTF_8));
+        part.persist();
+    }
+
+    private static byte[] gzip(String text) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(outputStream)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static String copyRange(long processContext, long start, long length) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        FinalLog.copyFinalLogsToOutputStream(processContext, "build", start, length, outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
     private static LogEntry createLogEntry(long processContext, String processContextVariant) {
         return createLogEntry(processContext, processContextVariant, false);
     }
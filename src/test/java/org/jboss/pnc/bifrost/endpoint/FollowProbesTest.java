@@ -0,0 +1,65 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.endpoint;
+
+import io.smallrye.mutiny.Multi;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class FollowProbesTest {
+
+    private static final Duration PROBE_INTERVAL = Duration.ofMillis(50);
+
+    @Test
+    public void shouldCompleteWhenLinesComplete() {
+        // the lines pause long enough for the probes to be sent in between
+        Multi<String> lines = Multi.createFrom()
+                .ticks()
+                .every(Duration.ofMillis(300))
+                .select()
+                .first(2)
+                .map(tick -> "line " + tick + "\n");
+
+        List<String> sent = RestImpl.withProbes(lines, PROBE_INTERVAL, "probe")
+                .collect()
+                .asList()
+                .await()
+                .atMost(Duration.ofSeconds(5));
+
+        Assertions.assertEquals(List.of("line 0\n", "line 1\n"), sent.stream().filter(s -> !s.equals("probe")).toList());
+        Assertions.assertTrue(sent.contains("probe"));
+        Assertions.assertEquals("line 1\n", sent.get(sent.size() - 1));
+    }
+
+    @Test
+    public void shouldCompleteWithoutLines() {
+        List<String> sent = RestImpl.withProbes(Multi.createFrom().empty(), PROBE_INTERVAL, "probe")
+                .collect()
+                .asList()
+                .await()
+                .atMost(Duration.ofSeconds(5));
+
+        Assertions.assertEquals(List.of(), sent);
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.endpoint;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jboss.pnc.api.bifrost.dto.Line;
+import org.jboss.pnc.api.bifrost.enums.Direction;
+import org.jboss.pnc.api.bifrost.enums.Format;
+import org.jboss.pnc.bifrost.Config;
+import org.jboss.pnc.bifrost.common.scheduler.Subscription;
+import org.jboss.pnc.bifrost.common.scheduler.Subscriptions;
+import org.jboss.pnc.bifrost.endpoint.provider.DataProviderFactory;
+import org.jboss.pnc.bifrost.mock.BackOffRunnableConfigFactory;
+import org.jboss.pnc.bifrost.mock.LineProducer;
+import org.jboss.pnc.bifrost.source.Source;
+import org.jboss.pnc.bifrost.test.Wait;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class GetAllLinesTest {
+
+    private static final int NUMBER_OF_LINES = 25;
+
+    private final CursorSource source = new CursorSource();
+
+    private final Config config = new Config();
+
+    private RestImpl rest;
+
+    @BeforeEach
+    public void init() {
+        for (int i = 0; i < NUMBER_OF_LINES; i++) {
+            source.lines.add(LineProducer.getLine(i, false, "ctx"));
+        }
+        // reading the lines by fetches of this size would take more reads
+        config.setDefaultSourceFetchSize(10);
+        config.setStreamOutputBufferSize(1024);
+        config.setStreamOutputFlushMillis(200);
+        config.setSourcePollThreads(1);
+
+        rest = new RestImpl();
+        rest.config = config;
+        rest.dataProvider = DataProviderFactory.get(
+                config,
+                source,
+                new Subscriptions(config, null),
+                BackOffRunnableConfigFactory.get(100L, 5, 60000, 100L));
+        rest.registry = new SimpleMeterRegistry();
+        rest.initMetrics();
+    }
+
+    @Test
+    public void shouldDownloadAllLinesThroughCursor() throws Exception {
+        List<String> output = download(null);
+
+        Assertions.assertEquals(NUMBER_OF_LINES, output.size());
+        Assertions.assertTrue(output.get(NUMBER_OF_LINES - 1).contains("Message " + (NUMBER_OF_LINES - 1)));
+        Assertions.assertEquals(1, source.streamReads.get());
+        Assertions.assertEquals(0, source.fetchReads.get());
+    }
+
+    @Test
+    public void shouldDownloadMaxLinesThroughCursor() throws Exception {
+        List<String> output = download(5);
+
+        Assertions.assertEquals(5, output.size());
+        Assertions.assertTrue(output.get(4).contains("Message 4"));
+        Assertions.assertEquals(1, source.streamReads.get());
+        Assertions.assertEquals(0, source.fetchReads.get());
+    }
+
+    @Test
+    public void shouldCatchUpThroughCursorBeforeFollowing() throws Exception {
+        List<Line> received = Collections.synchronizedList(new ArrayList<>());
+        Subscription subscription = new Subscription(() -> {});
+        rest.dataProvider.subscribe("", "", Optional.empty(), line -> {
+            if (line != null) {
+                received.add(line);
+            }
+        }, subscription, Optional.empty(), Optional.empty(), Optional.empty(), true);
+
+        try {
+            Wait.forCondition(() -> received.size() == NUMBER_OF_LINES, 5L, ChronoUnit.SECONDS);
+            Assertions.assertEquals(1, source.streamReads.get());
+            for (int i = 0; i < NUMBER_OF_LINES; i++) {
+                Assertions.assertEquals(source.lines.get(i).getId(), received.get(i).getId());
+            }
+
+            // once caught up the new lines are polled
+            source.lines.add(LineProducer.getLine(NUMBER_OF_LINES, false, "ctx"));
+            Wait.forCondition(() -> received.size() == NUMBER_OF_LINES + 1, 5L, ChronoUnit.SECONDS);
+            Assertions.assertEquals(1, source.streamReads.get());
+        } finally {
+            rest.dataProvider.unsubscribe(subscription);
+        }
+    }
+
+    private List<String> download(Integer maxLines) throws Exception {
+        Response response = rest.getAllLines(
+                "",
+                "",
+                null,
+                Direction.ASC,
+                Format.DEFAULT,
+                maxLines,
+                null,
+                null,
+                null,
+                false,
+                null);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    /**
+     * Source passing the lines after the searched one, the fetches and the cursor reads are counted.
+     */
+    private static class CursorSource implements Source {
+
+        private final List<Line> lines = Collections.synchronizedList(new ArrayList<>());
+
+        private final AtomicInteger fetchReads = new AtomicInteger();
+
+        private final AtomicInteger streamReads = new AtomicInteger();
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void get(
+                Map<String, List<String>> matchFilters,
+                Map<String, List<String>> prefixFilters,
+                Optional<Line> searchAfter,
+                Direction direction,
+                int fetchSize,
+                Consumer<Line> onLine) {
+            fetchReads.incrementAndGet();
+            read(searchAfter, fetchSize, onLine);
+        }
+
+        @Override
+        public void stream(
+                Map<String, List<String>> matchFilters,
+                Map<String, List<String>> prefixFilters,
+                Optional<Line> searchAfter,
+                Direction direction,
+                Optional<Integer> maxLines,
+                int fetchSize,
+                Consumer<Line> onLine) {
+            streamReads.incrementAndGet();
+            read(searchAfter, maxLines.orElse(Integer.MAX_VALUE), onLine);
+        }
+
+        private void read(Optional<Line> searchAfter, int maxLines, Consumer<Line> onLine) {
+            List<Line> snapshot = new ArrayList<>(lines);
+            int from = 0;
+            if (searchAfter.isPresent()) {
+                for (int i = 0; i < snapshot.size(); i++) {
+                    if (snapshot.get(i).getId().equals(searchAfter.get().getId())) {
+                        from = i + 1;
+                    }
+                }
+            }
+            int to = (int) Math.min(snapshot.size(), (long) from + maxLines);
+            if (from == to) {
+                onLine.accept(null);
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                onLine.accept(snapshot.get(i).cloneBuilder().last(i == snapshot.size() - 1).build());
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.endpoint;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class LineStreamWriterTest {
+
+    @Test
+    public void shouldBufferUntilFlushed() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LineStreamWriter writer = new LineStreamWriter(out, 1024, 60000);
+
+        writer.write("line 1\n");
+        writer.write("line 2\n");
+        writer.flushIfDue();
+        Assertions.assertEquals(0, out.size());
+
+        writer.flush();
+        Assertions.assertEquals("line 1\nline 2\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldEncodeLinesLongerThanBuffer() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LineStreamWriter writer = new LineStreamWriter(out, 8, 60000);
+
+        String line = "žluťoučký kůň 🐎 úpěl ďábelské ódy\n";
+        writer.write(line);
+        writer.write(line);
+        writer.close();
+        Assertions.assertEquals(line + line, out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.endpoint.provider;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jboss.pnc.bifrost.Config;
+import org.jboss.pnc.bifrost.common.scheduler.BackOffRunnableConfig;
+import org.jboss.pnc.bifrost.common.scheduler.Subscriptions;
+import org.jboss.pnc.bifrost.source.Source;
+import org.jboss.pnc.bifrost.source.SourceReadLimiter;
+import org.jboss.pnc.bifrost.source.dispatch.LineDispatcher;
+
+import java.io.IOException;
+
+/**
+ * Data provider reading from the given source without the container, the source reads are not limited and there
+ * is no live dispatch.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class DataProviderFactory {
+
+    public static DataProvider get(
+            Config config,
+            Source source,
+            Subscriptions subscriptions,
+            BackOffRunnableConfig backOffRunnableConfig) {
+        DataProvider dataProvider = new DataProvider();
+        dataProvider.config = config;
+        dataProvider.source = source;
+        dataProvider.subscriptions = subscriptions;
+        dataProvider.backOffRunnableConfig = backOffRunnableConfig;
+        dataProvider.sourceReadLimiter = new SourceReadLimiter() {
+            @Override
+            public void run(Read read) throws IOException {
+                read.run();
+            }
+        };
+        dataProvider.lineDispatcher = new LineDispatcher();
+        RecentLinesCache recentLinesCache = new RecentLinesCache();
+        recentLinesCache.config = config;
+        dataProvider.recentLinesCache = recentLinesCache;
+        dataProvider.registry = new SimpleMeterRegistry();
+        dataProvider.init();
+        return dataProvider;
+    }
+}
@@ -64,8 +64,12 @@ public class DataProviderMock extends DataProvider {
             if (direction == Direction.DESC) {
                 Collections.reverse(resultLines);
             }
-            int limit = batchSize.orElse(resultLines.size());
-            resultLines.stream().limit(limit).forEach(onLine);
+            String afterTimestamp = afterLine.map(Line::getTimestamp).orElse(null);
+            int limit = maxLines.orElse(batchSize.orElse(resultLines.size()));
+            resultLines.stream()
+                    .filter(line -> isAfter(line, afterTimestamp, direction))
+                    .limit(limit)
+                    .forEach(onLine);
         }
     }
 
@@ -92,6 +96,26 @@ public class DataProviderMock extends DataProvider {
         }
     }
 
+    @Override
+    @WithSpan()
+    protected void streamFromSource(
+            @SpanAttribute(value = "matchFilters") String matchFilters,
+            @SpanAttribute(value = "prefixFilters") String prefixFilters,
+            @SpanAttribute(value = "maxLines") int maxLines,
+            @SpanAttribute(value = "fetchSize") int fetchSize,
+            @SpanAttribute(value = "lastResult") Optional<Line> lastResult,
+            @SpanAttribute(value = "onLine") Consumer<Line> onLine) throws IOException {
+        readFromSource(matchFilters, prefixFilters, maxLines, lastResult, onLine);
+    }
+
+    private static boolean isAfter(Line line, String afterTimestamp, Direction direction) {
+        if (afterTimestamp == null) {
+            return true;
+        }
+        int compared = Long.compare(Long.parseLong(line.getTimestamp()), Long.parseLong(afterTimestamp));
+        return direction == Direction.DESC ? compared < 0 : compared > 0;
+    }
+
     public void addLine(Line line) {
         lines.add(line);
     }
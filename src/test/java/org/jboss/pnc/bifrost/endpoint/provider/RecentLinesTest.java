@@ -0,0 +1,115 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.endpoint.provider;
+
+import org.jboss.pnc.api.bifrost.dto.Line;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class RecentLinesTest {
+
+    @Test
+    public void shouldServeTailWhenEnoughLinesAreCached() {
+        RecentLines recentLines = new RecentLines(10);
+        recentLines.seed(descending(lines(1, 5)), false);
+
+        Assertions.assertEquals(List.of("5", "4", "3"), ids(recentLines.tail(3).get()));
+        Assertions.assertTrue(recentLines.tail(6).isEmpty());
+    }
+
+    @Test
+    public void shouldServeWholeTailWhenComplete() {
+        RecentLines recentLines = new RecentLines(10);
+        recentLines.seed(descending(lines(1, 3)), true);
+
+        List<Line> tail = recentLines.tail(5).get();
+        Assertions.assertEquals(List.of("3", "2", "1"), ids(tail));
+        Assertions.assertTrue(tail.get(2).isLast());
+        Assertions.assertFalse(tail.get(0).isLast());
+    }
+
+    @Test
+    public void shouldAppendOnlyContiguousLines() {
+        RecentLines recentLines = new RecentLines(10);
+        List<Line> lines = lines(1, 8);
+        recentLines.seed(descending(lines.subList(0, 3)), true);
+
+        Assertions.assertFalse(recentLines.append(lines.get(1), lines.subList(3, 5)));
+        Assertions.assertTrue(recentLines.append(lines.get(2), lines.subList(3, 5)));
+        Assertions.assertEquals("5", recentLines.newest().get().getId());
+    }
+
+    @Test
+    public void shouldEvictOldestLines() {
+        RecentLines recentLines = new RecentLines(3);
+        List<Line> lines = lines(1, 5);
+        recentLines.seed(descending(lines.subList(0, 2)), true);
+        recentLines.append(lines.get(1), lines.subList(2, 5));
+
+        Assertions.assertFalse(recentLines.isComplete());
+        Assertions.assertEquals(List.of("5", "4", "3"), ids(recentLines.tail(3).get()));
+        Assertions.assertTrue(recentLines.after(lines.get(0), 10).isEmpty());
+    }
+
+    @Test
+    public void shouldReturnLinesAfter() {
+        RecentLines recentLines = new RecentLines(10);
+        List<Line> lines = lines(1, 6);
+        recentLines.seed(descending(lines), false);
+
+        Assertions.assertEquals(List.of("4", "5"), ids(recentLines.after(lines.get(2), 2).get()));
+        Assertions.assertEquals(Collections.emptyList(), recentLines.after(lines.get(5), 2).get());
+        Assertions.assertEquals(Optional.empty(), recentLines.after(line(7), 2));
+    }
+
+    private List<Line> lines(int from, int to) {
+        List<Line> lines = new ArrayList<>();
+        for (int i = from; i <= to; i++) {
+            lines.add(line(i));
+        }
+        return lines;
+    }
+
+    private Line line(int i) {
+        return Line.newBuilder()
+                .id(Integer.toString(i))
+                .timestamp(String.format("2024-01-01T10:00:%02d.000Z", i))
+                .sequence(Integer.toString(i))
+                .message("Message " + i)
+                .build();
+    }
+
+    private List<Line> descending(List<Line> lines) {
+        List<Line> descending = new ArrayList<>(lines);
+        Collections.reverse(descending);
+        return descending;
+    }
+
+    private List<String> ids(List<Line> lines) {
+        return lines.stream().map(Line::getId).collect(Collectors.toList());
+    }
+}
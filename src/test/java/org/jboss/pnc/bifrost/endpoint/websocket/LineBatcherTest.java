@@ -0,0 +1,82 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.endpoint.websocket;
+
+import org.jboss.pnc.api.bifrost.dto.Line;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class LineBatcherTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    private final BlockingQueue<List<Line>> batches = new LinkedBlockingQueue<>();
+
+    @AfterEach
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void shouldSendBatchOnLastLineAndWhenFull() {
+        LineBatcher batcher = new LineBatcher(scheduler, 60000, 3, batches::add);
+
+        batcher.accept(line("1", false));
+        batcher.accept(line("2", true));
+        Assertions.assertEquals(List.of("1", "2"), ids(batches.poll()));
+
+        batcher.accept(line("3", false));
+        batcher.accept(line("4", false));
+        batcher.accept(line("5", false));
+        Assertions.assertEquals(List.of("3", "4", "5"), ids(batches.poll()));
+        Assertions.assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void shouldSendBatchAfterLinger() throws InterruptedException {
+        LineBatcher batcher = new LineBatcher(scheduler, 50, 100, batches::add);
+
+        batcher.accept(line("1", false));
+        batcher.accept(line("2", false));
+        Assertions.assertEquals(List.of("1", "2"), ids(batches.poll(5, TimeUnit.SECONDS)));
+
+        batcher.accept(line("3", false));
+        Assertions.assertEquals(List.of("3"), ids(batches.poll(5, TimeUnit.SECONDS)));
+        Assertions.assertTrue(batches.isEmpty());
+    }
+
+    private static Line line(String id, boolean last) {
+        return Line.newBuilder().id(id).last(last).build();
+    }
+
+    private static List<String> ids(List<Line> lines) {
+        Assertions.assertNotNull(lines, "Batch was not sent.");
+        return lines.stream().map(Line::getId).toList();
+    }
+}
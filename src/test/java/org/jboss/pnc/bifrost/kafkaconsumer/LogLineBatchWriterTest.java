@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.kafkaconsumer;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import org.jboss.pnc.api.bifrost.dto.Line;
+import org.jboss.pnc.api.bifrost.enums.Direction;
+import org.jboss.pnc.bifrost.source.db.DatabaseSource;
+import org.jboss.pnc.bifrost.source.db.LogEntry;
+import org.jboss.pnc.bifrost.source.db.LogLevel;
+import org.jboss.pnc.bifrost.source.db.LogLine;
+import org.jboss.pnc.bifrost.source.db.LogLineBatchWriter;
+import org.jboss.pnc.common.concurrent.Sequence;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import jakarta.inject.Inject;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+@QuarkusTest
+public class LogLineBatchWriterTest {
+
+    private static final LogLevel[] LEVELS = { LogLevel.INFO, LogLevel.ERROR, null, LogLevel.DEBUG, LogLevel.WARN };
+
+    @Inject
+    LogLineBatchWriter logLineBatchWriter;
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    DatabaseSource databaseSource;
+
+    @Test
+    public void shouldStoreBatchLargerThanStatement() throws Exception {
+        int rowsPerStatement = configuration.insertRowsPerStatement();
+        // two full statements and a partial one
+        int numberOfLines = rowsPerStatement * 2 + 3;
+        long logEntryId = Sequence.nextId();
+        long processContext = Sequence.nextId();
+        OffsetDateTime timestamp = OffsetDateTime.parse("2022-05-18T15:20:47.536Z");
+
+        List<LogLine> logLines = new ArrayList<>(numberOfLines);
+        QuarkusTransaction.requiringNew().run(() -> {
+            // persisted in the same transaction, the writer must flush it before the lines
+            LogEntry logEntry = new LogEntry(logEntryId, processContext, "0", "abc123", false, 1L);
+            logEntry.persist();
+            for (int i = 0; i < numberOfLines; i++) {
+                logLines.add(
+                        new LogLine(
+                                Sequence.nextId(),
+                                logEntry,
+                                timestamp.plusNanos(i * 1000L),
+                                i,
+                                LEVELS[i % LEVELS.length],
+                                "org.jboss.pnc.logger" + (i % 3),
+                                "Line " + i));
+            }
+            logLineBatchWriter.insert(logLines, rowsPerStatement);
+        });
+
+        try {
+            List<Line> stored = new ArrayList<>();
+            Map<String, List<String>> matchFilters = Map
+                    .of("mdc.processContext", List.of(Long.toString(processContext)));
+            databaseSource.stream(
+                    matchFilters,
+                    Collections.emptyMap(),
+                    Optional.empty(),
+                    Direction.ASC,
+                    Optional.empty(),
+                    100,
+                    line -> {
+                        // null marks the end of the results
+                        if (line != null) {
+                            stored.add(line);
+                        }
+                    });
+
+            Assertions.assertEquals(numberOfLines, stored.size());
+            for (int i = 0; i < numberOfLines; i++) {
+                LogLine expected = logLines.get(i);
+                Line line = stored.get(i);
+                Assertions.assertEquals(Long.toString(expected.getId()), line.getId());
+                Assertions.assertEquals(Long.toString(expected.getSequence()), line.getSequence());
+                Assertions.assertEquals(expected.getLoggerName(), line.getLogger());
+                Assertions.assertEquals(expected.getLine(), line.getMessage());
+                Assertions.assertEquals(
+                        Optional.ofNullable(expected.getLevel()).map(LogLevel::toString).orElse(null),
+                        line.getMdc().get("level"));
+                Assertions.assertEquals(Long.toString(processContext), line.getMdc().get("processContext"));
+            }
+            Assertions.assertTrue(stored.get(numberOfLines - 1).isLast());
+
+            List<String> levels = stored.stream()
+                    .map(line -> line.getMdc().get("level"))
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .sorted()
+                    .collect(Collectors.toList());
+            Assertions.assertEquals(List.of("DEBUG", "ERROR", "INFO", "WARN"), levels);
+        } finally {
+            QuarkusTransaction.requiringNew().run(() -> {
+                LogLine.delete("logEntry.id = ?1", logEntryId);
+                LogEntry.deleteById(logEntryId);
+            });
+        }
+    }
+}
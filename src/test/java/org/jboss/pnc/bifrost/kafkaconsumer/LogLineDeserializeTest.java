@@ -63,4 +63,19 @@ public class LogLineDeserializeTest {
         Assertions.assertEquals(327032778354724864L, logLine.getLogEntry().getBuildId());
         Assertions.assertEquals(327784835315888128L, logLine.getLogEntry().getProcessContext());
     }
+
+    @Test
+    public void shouldSkipStructuredValuesOfKnownFields() throws JsonProcessingException {
+        ObjectMapper mapper = new ObjectMapper();
+
+        String json = "{\"@timestamp\":\"2022-06-23T12:19:54.687Z\",\"level\":{\"name\":\"INFO\",\"id\":[1,2]},"
+                + "\"message\":[\"a\",{\"b\":\"c\"}],\"mdc\":{\"requestContext\":{\"id\":\"x\"},"
+                + "\"processContext\":\"12345\"},\"loggerName\":\"org.jboss.pnc.kafka2db\",\"sequence\":7}";
+        LogLine logLine = mapper.readValue(json, LogLine.class);
+        Assertions.assertEquals("org.jboss.pnc.kafka2db", logLine.getLoggerName());
+        Assertions.assertEquals(12345L, logLine.getLogEntry().getProcessContext());
+        Assertions.assertNull(logLine.getLogEntry().getRequestContext());
+        Assertions.assertEquals("", logLine.getLine());
+        Assertions.assertEquals(7L, logLine.getSequence());
+    }
 }
@@ -0,0 +1,434 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thetransactioncompany.jsonrpc2.JSONRPC2Request;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import org.apache.commons.beanutils.BeanUtils;
+import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.jboss.pnc.bifrost.endpoint.websocket.MethodSubscribe;
+import org.jboss.pnc.bifrost.endpoint.websocket.SubscribeDto;
+import org.jboss.pnc.bifrost.kafkaconsumer.StoredCounter;
+import org.jboss.pnc.bifrost.source.db.QueryStats;
+import org.jboss.pnc.common.concurrent.Sequence;
+import org.jboss.pnc.common.pnc.LongBase32IdConverter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.websocket.ClientEndpoint;
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.OnMessage;
+import jakarta.websocket.Session;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Drives synthetic builds through the logs channel while REST follow and WebSocket subscribe clients tail them, and
+ * reports the ingest lag, the latency of the lines to the clients, the database query rates and the heap usage.
+ * Excluded from the default build, run by: mvn -Pload-test test
+ * <p>
+ * The load is set by the system properties load.linesPerSecond, load.duration, load.builds, load.lineLength,
+ * load.followClients, load.subscribeClients and load.drainTimeout. The bifrost.* properties configure the service
+ * under test the same way. The report is written to load.report as JSON to compare the runs.
+ *
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+@QuarkusTest
+@TestProfile(LoadTestProfile.class)
+@Tag("load-test")
+public class LoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTest.class);
+
+    /**
+     * The time the line was sent in nanoseconds, it is part of the message to measure the latency on the client side.
+     */
+    private static final Pattern SENT = Pattern.compile("sent=(\\d+)");
+
+    private static final double[] PERCENTILES = { 0.5, 0.9, 0.99 };
+
+    private final int linesPerSecond = Integer.getInteger("load.linesPerSecond", 200);
+    private final Duration duration = Duration.parse(System.getProperty("load.duration", "PT30S"));
+    private final int builds = Integer.getInteger("load.builds", 10);
+    private final int lineLength = Integer.getInteger("load.lineLength", 120);
+    private final int followClients = Integer.getInteger("load.followClients", 10);
+    private final int subscribeClients = Integer.getInteger("load.subscribeClients", 10);
+    private final Duration drainTimeout = Duration.parse(System.getProperty("load.drainTimeout", "PT1M"));
+    private final Path report = Path.of(System.getProperty("load.report", "target/load-test-report.json"));
+
+    @Inject
+    ObjectMapper mapper;
+
+    @Inject
+    @Channel("logs-in")
+    Emitter<String> emitter;
+
+    @Inject
+    StoredCounter storedCounter;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    MeterRegistry registry;
+
+    @TestHTTPResource("/text")
+    URI textUri;
+
+    @TestHTTPResource("/socket")
+    URI socketUri;
+
+    private final MeterRegistry results = new SimpleMeterRegistry();
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    @Test
+    public void ingestAndFollow() throws Exception {
+        Timer ingestLag = timer("ingest.lag");
+        Timer followLatency = timer("follow.latency");
+        Timer subscribeLatency = timer("subscribe.latency");
+
+        List<String> processContexts = new ArrayList<>();
+        AtomicLongArray emittedPerBuild = new AtomicLongArray(builds);
+        for (int i = 0; i < builds; i++) {
+            processContexts.add(LongBase32IdConverter.toString(Sequence.nextId()));
+        }
+
+        // lines are stored in the order they are sent, the stored count is the index of the last stored line
+        AtomicLongArray sentTimes = new AtomicLongArray(
+                Math.toIntExact(linesPerSecond * duration.toSeconds() + linesPerSecond));
+        AtomicLong emitted = new AtomicLong();
+        AtomicLong stored = new AtomicLong();
+        storedCounter.addIncrementListener(count -> {
+            stored.set(count);
+            if (count <= emitted.get()) {
+                ingestLag.record(System.nanoTime() - sentTimes.get((int) (count - 1)), TimeUnit.NANOSECONDS);
+            }
+        });
+
+        ExecutorService clientExecutor = Executors.newCachedThreadPool();
+        List<Closeable> connections = new ArrayList<>();
+        List<AtomicLong> followReceived = new ArrayList<>();
+        for (int i = 0; i < followClients; i++) {
+            AtomicLong received = new AtomicLong();
+            followReceived.add(received);
+            connections.add(follow(processContexts.get(i % builds), clientExecutor, received, followLatency));
+        }
+        List<AtomicLong> subscribeReceived = new ArrayList<>();
+        for (int i = 0; i < subscribeClients; i++) {
+            AtomicLong received = new AtomicLong();
+            subscribeReceived.add(received);
+            connections.add(subscribe(processContexts.get(i % builds), received, subscribeLatency));
+        }
+
+        Statistics statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        long statementsBefore = statistics.getPrepareStatementCount();
+        long queriesBefore = statistics.getQueryExecutionCount();
+        long sourceQueriesBefore = sourceQueryCount();
+
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        AtomicLong maxBacklog = new AtomicLong();
+        AtomicLong maxHeap = new AtomicLong();
+        ScheduledFuture<?> sampling = scheduler.scheduleAtFixedRate(() -> {
+            long backlog = emitted.get() - stored.get();
+            long heap = memory.getHeapMemoryUsage().getUsed();
+            maxBacklog.accumulateAndGet(backlog, Math::max);
+            maxHeap.accumulateAndGet(heap, Math::max);
+            logger.info(
+                    "Emitted: {}, stored: {}, backlog: {}, heap used: {} MB.",
+                    emitted.get(),
+                    stored.get(),
+                    backlog,
+                    heap >> 20);
+        }, 1, 1, TimeUnit.SECONDS);
+
+        logger.info(
+                "Emitting {} lines per second of {} builds for {}, {} follow and {} subscribe clients.",
+                linesPerSecond,
+                builds,
+                duration,
+                followClients,
+                subscribeClients);
+        long start = System.nanoTime();
+        long lines = linesPerSecond * duration.toSeconds();
+        String padding = "x".repeat(lineLength);
+        ScheduledFuture<?> emitting = scheduler.scheduleAtFixedRate(() -> {
+            long due = Math.min(lines, linesPerSecond * (System.nanoTime() - start) / 1_000_000_000L);
+            while (emitted.get() < due) {
+                int index = (int) emitted.get();
+                int build = index % builds;
+                long sent = System.nanoTime();
+                sentTimes.set(index, sent);
+                emit(processContexts.get(build), emittedPerBuild.getAndIncrement(build), sent, padding);
+                emitted.incrementAndGet();
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+
+        while (emitted.get() < lines) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        emitting.cancel(false);
+        long emittedAt = System.nanoTime();
+        logger.info("Emitted {} lines, waiting for the clients to receive them.", lines);
+
+        long deadline = emittedAt + drainTimeout.toNanos();
+        while (System.nanoTime() < deadline && !(stored.get() >= lines
+                && isComplete(followReceived, emittedPerBuild) && isComplete(subscribeReceived, emittedPerBuild))) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        long end = System.nanoTime();
+        sampling.cancel(false);
+        scheduler.shutdownNow();
+        for (Closeable connection : connections) {
+            connection.close();
+        }
+        clientExecutor.shutdownNow();
+
+        double seconds = (end - start) / 1e9;
+        Map<String, Object> ingest = new LinkedHashMap<>();
+        ingest.put("lines", lines);
+        ingest.put("stored", stored.get());
+        ingest.put("linesPerSecond", lines / ((emittedAt - start) / 1e9));
+        ingest.put("lagMillis", percentiles(ingestLag));
+        ingest.put("maxBacklog", maxBacklog.get());
+        ingest.put("drainMillis", TimeUnit.NANOSECONDS.toMillis(end - emittedAt));
+        Map<String, Object> db = new LinkedHashMap<>();
+        db.put("statementsPerSecond", (statistics.getPrepareStatementCount() - statementsBefore) / seconds);
+        db.put("queriesPerSecond", (statistics.getQueryExecutionCount() - queriesBefore) / seconds);
+        db.put("sourceQueriesPerSecond", (sourceQueryCount() - sourceQueriesBefore) / seconds);
+        Map<String, Object> heap = new LinkedHashMap<>();
+        heap.put("maxUsedMB", maxHeap.get() >> 20);
+        heap.put("usedMB", memory.getHeapMemoryUsage().getUsed() >> 20);
+        heap.put("maxMB", memory.getHeapMemoryUsage().getMax() >> 20);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("parameters", parameters());
+        result.put("ingest", ingest);
+        result.put("follow", clients(followReceived, followLatency));
+        result.put("subscribe", clients(subscribeReceived, subscribeLatency));
+        result.put("db", db);
+        result.put("heap", heap);
+        String json = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(result);
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        Files.writeString(report, json);
+        logger.info("Load test result written to {}:\n{}", report, json);
+
+        Assertions.assertEquals(lines, stored.get(), "All emitted lines should be stored.");
+        assertReceived(followReceived, emittedPerBuild, "follow");
+        assertReceived(subscribeReceived, emittedPerBuild, "subscribe");
+    }
+
+    private void emit(String processContext, long sequence, long sent, String padding) {
+        Map<String, Object> record = new HashMap<>();
+        record.put("@timestamp", Instant.now().toString());
+        record.put("sequence", sequence);
+        record.put("level", "INFO");
+        record.put("loggerName", "org.jboss.pnc.load");
+        record.put("message", "Load test line sent=" + sent + " " + padding);
+        record.put("mdc", Map.of("processContext", processContext));
+        try {
+            emitter.send(mapper.writeValueAsString(record));
+        } catch (Exception e) {
+            logger.error("Cannot emit the line.", e);
+        }
+    }
+
+    /**
+     * Follow the build by the REST endpoint, the client keeps reading the lines until the connection is closed. The
+     * response headers might not be sent before the first line, the request is not awaited.
+     */
+    private Closeable follow(String processContext, ExecutorService executor, AtomicLong received, Timer latency) {
+        URI uri = URI.create(
+                textUri + "?follow=true&matchFilters="
+                        + URLEncoder.encode("mdc.processContext:" + processContext, StandardCharsets.UTF_8));
+        CompletableFuture<HttpResponse<InputStream>> response = http
+                .sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofInputStream());
+        response.thenAcceptAsync(r -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(r.body(), StandardCharsets.UTF_8))) {
+                for (String line; (line = reader.readLine()) != null;) {
+                    received(line, received, latency);
+                }
+            } catch (IOException e) {
+                logger.debug("Follow connection closed.", e);
+            }
+        }, executor);
+        return () -> {
+            if (!response.cancel(true)) {
+                response.join().body().close();
+            }
+        };
+    }
+
+    private Closeable subscribe(String processContext, AtomicLong received, Timer latency) throws Exception {
+        Session session = ContainerProvider.getWebSocketContainer()
+                .connectToServer(new SocketClient(message -> received(message, received, latency)), socketUri);
+        SubscribeDto parameters = new SubscribeDto();
+        parameters.setMatchFilters("mdc.processContext:" + processContext);
+        parameters.setPrefixFilters("");
+        Map<String, Object> parameterMap = (Map) BeanUtils.describe(parameters);
+        JSONRPC2Request request = new JSONRPC2Request(new MethodSubscribe().getName(), parameterMap, 1);
+        session.getAsyncRemote().sendText(request.toJSONString());
+        return session;
+    }
+
+    /**
+     * Count the lines in the received text and record their latency, a message might carry more lines.
+     */
+    private static void received(String text, AtomicLong received, Timer latency) {
+        long now = System.nanoTime();
+        Matcher matcher = SENT.matcher(text);
+        while (matcher.find()) {
+            latency.record(now - Long.parseLong(matcher.group(1)), TimeUnit.NANOSECONDS);
+            received.incrementAndGet();
+        }
+    }
+
+    private boolean isComplete(List<AtomicLong> received, AtomicLongArray emittedPerBuild) {
+        for (int i = 0; i < received.size(); i++) {
+            if (received.get(i).get() < emittedPerBuild.get(i % builds)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void assertReceived(List<AtomicLong> received, AtomicLongArray emittedPerBuild, String clients) {
+        for (int i = 0; i < received.size(); i++) {
+            Assertions.assertEquals(
+                    emittedPerBuild.get(i % builds),
+                    received.get(i).get(),
+                    "The " + clients + " client " + i + " should receive all lines of its build once.");
+        }
+    }
+
+    private long sourceQueryCount() {
+        return registry.find(QueryStats.class.getName() + ".db")
+                .timers()
+                .stream()
+                .mapToLong(Timer::count)
+                .sum();
+    }
+
+    private Timer timer(String name) {
+        return Timer.builder(name).publishPercentiles(PERCENTILES).register(results);
+    }
+
+    private static Map<String, Object> percentiles(Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            values.put("p" + Math.round(percentile.percentile() * 100), percentile.value(TimeUnit.MILLISECONDS));
+        }
+        values.put("max", snapshot.max(TimeUnit.MILLISECONDS));
+        values.put("mean", snapshot.mean(TimeUnit.MILLISECONDS));
+        return values;
+    }
+
+    private static Map<String, Object> clients(List<AtomicLong> received, Timer latency) {
+        Map<String, Object> clients = new LinkedHashMap<>();
+        clients.put("clients", received.size());
+        clients.put("lines", received.stream().mapToLong(AtomicLong::get).sum());
+        clients.put("latencyMillis", percentiles(latency));
+        return clients;
+    }
+
+    private Map<String, Object> parameters() {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("linesPerSecond", linesPerSecond);
+        parameters.put("duration", duration.toString());
+        parameters.put("builds", builds);
+        parameters.put("lineLength", lineLength);
+        parameters.put("followClients", followClients);
+        parameters.put("subscribeClients", subscribeClients);
+        parameters.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        parameters.put("maxHeapMB", memory.getHeapMemoryUsage().getMax() >> 20);
+        return parameters;
+    }
+
+    @ClientEndpoint
+    public static class SocketClient {
+
+        private final Consumer<String> onMessage;
+
+        public SocketClient(Consumer<String> onMessage) {
+            this.onMessage = onMessage;
+        }
+
+        @OnMessage
+        public void message(String message, Session session) {
+            onMessage.accept(message);
+        }
+
+        @OnMessage
+        public void message(ByteBuffer buffer, Session session) {
+            onMessage.accept(StandardCharsets.UTF_8.decode(buffer).toString());
+        }
+    }
+}
@@ -20,6 +20,7 @@ package org.jboss.pnc.bifrost.source;
 import io.quarkus.test.junit.QuarkusTest;
 import org.jboss.pnc.api.bifrost.dto.Line;
 import org.jboss.pnc.api.bifrost.enums.Direction;
+import org.jboss.pnc.bifrost.Config;
 import org.jboss.pnc.bifrost.source.db.DatabaseSource;
 import org.jboss.pnc.bifrost.source.db.LogLine;
 import org.jboss.pnc.bifrost.test.DbUtils;
@@ -61,6 +62,9 @@ public class DatabaseSourceTest {
     @Inject
     DatabaseSource databaseSource;
 
+    @Inject
+    Config config;
+
     @BeforeEach
     @Transactional
     public void init() throws Exception {
@@ -114,6 +118,43 @@ public class DatabaseSourceTest {
         Assertions.assertEquals(10, matchingLines.size());
     }
 
+    @Test
+    public void shouldGetNoLinesOfUnknownCtx() throws Exception {
+        dbUtils.insertLines(2, 1, DEFAULT_LOGGER);
+
+        List<Line> lines = new ArrayList<>();
+        Map<String, List<String>> matchFilters = Map.of("mdc.processContext", Arrays.asList("99"));
+        databaseSource.get(matchFilters, Collections.emptyMap(), Optional.empty(), Direction.ASC, 100, lines::add);
+
+        // null marks the end of the results
+        Assertions.assertEquals(1, lines.size());
+        Assertions.assertNull(lines.get(0));
+    }
+
+    @Test
+    public void shouldGetLinesOfMoreCtxThanBoundIds() throws Exception {
+        List<String> contexts = new ArrayList<>();
+        for (int ctx = 1; ctx <= DatabaseSource.MAX_LOG_ENTRY_IDS + 1; ctx++) {
+            dbUtils.insertLines(1, ctx, DEFAULT_LOGGER);
+            contexts.add(Integer.toString(ctx));
+        }
+        dbUtils.insertLines(1, DatabaseSource.MAX_LOG_ENTRY_IDS + 2, DEFAULT_LOGGER);
+
+        List<Line> lines = new ArrayList<>();
+        Map<String, List<String>> matchFilters = Map.of("mdc.processContext", contexts);
+        databaseSource.get(
+                matchFilters,
+                Collections.emptyMap(),
+                Optional.empty(),
+                Direction.ASC,
+                DatabaseSource.MAX_LOG_ENTRY_IDS + 10,
+                lines::add);
+
+        // null marks the end of the results
+        Assertions.assertEquals(DatabaseSource.MAX_LOG_ENTRY_IDS + 2, lines.size());
+        Assertions.assertNull(lines.get(lines.size() - 1));
+    }
+
     @Test
     public void shouldGetLinesAfter() throws Exception {
         dbUtils.insertLines(10, 1, DEFAULT_LOGGER, OffsetDateTime.now());
@@ -201,4 +242,50 @@ public class DatabaseSourceTest {
         Assertions.assertEquals(4, lines.size());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldStreamAllLinesByPages() throws Exception {
+        dbUtils.insertLines(25, 1, DEFAULT_LOGGER, OffsetDateTime.now());
+        Map<String, List<String>> noFilters = Collections.emptyMap();
+
+        int streamPageSize = config.getStreamPageSize();
+        config.setStreamPageSize(10);
+        try {
+            List<Line> lines = new ArrayList<>();
+            databaseSource
+                    .stream(noFilters, noFilters, Optional.empty(), Direction.ASC, Optional.empty(), 4, lines::add);
+            Assertions.assertEquals(25, lines.size());
+            Assertions.assertEquals(1, lines.stream().filter(Line::isLast).count());
+            Assertions.assertTrue(lines.get(24).isLast());
+            for (int i = 0; i < lines.size(); i++) {
+                Assertions.assertEquals(Integer.toString(i), lines.get(i).getSequence());
+            }
+
+            List<Line> limited = new ArrayList<>();
+            databaseSource.stream(
+                    noFilters,
+                    noFilters,
+                    Optional.of(lines.get(4)),
+                    Direction.ASC,
+                    Optional.of(12),
+                    4,
+                    limited::add);
+            Assertions.assertEquals(12, limited.size());
+            Assertions.assertEquals("5", limited.get(0).getSequence());
+            Assertions.assertFalse(limited.get(11).isLast());
+
+            List<Line> none = new ArrayList<>();
+            databaseSource.stream(
+                    noFilters,
+                    noFilters,
+                    Optional.of(lines.get(24)),
+                    Direction.ASC,
+                    Optional.empty(),
+                    4,
+                    none::add);
+            Assertions.assertEquals(1, none.size());
+            Assertions.assertNull(none.get(0));
+        } finally {
+            config.setStreamPageSize(streamPageSize);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.source.db;
+
+import org.jboss.pnc.api.bifrost.dto.Line;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class LineMapperTest {
+
+    private static final OffsetDateTime TIMESTAMP = OffsetDateTime.of(2022, 4, 27, 22, 15, 47, 0, ZoneOffset.UTC);
+
+    @Test
+    public void shouldMapRowLikeEntity() {
+        LogEntry logEntry = new LogEntry(10L, 100L, "1", "ctx", false, 200L);
+        LogLine logLine = new LogLine(1L, logEntry, TIMESTAMP, 5L, LogLevel.WARN, "org.jboss.pnc", "message");
+
+        Line fromEntity = LineMapper.toLine(logLine, true);
+        Line fromRow = new LineMapper.RowMapper().toLine(row(1L, LogLevel.WARN, logEntry), true);
+
+        Assertions.assertEquals(fromEntity.getId(), fromRow.getId());
+        Assertions.assertEquals(fromEntity.getTimestamp(), fromRow.getTimestamp());
+        Assertions.assertEquals(fromEntity.getSequence(), fromRow.getSequence());
+        Assertions.assertEquals(fromEntity.getLogger(), fromRow.getLogger());
+        Assertions.assertEquals(fromEntity.getMessage(), fromRow.getMessage());
+        Assertions.assertEquals(fromEntity.getMdc(), fromRow.getMdc());
+        Assertions.assertEquals(fromEntity.isLast(), fromRow.isLast());
+    }
+
+    @Test
+    public void shouldShareMdcOfSameEntryAndLevel() {
+        LogEntry logEntry = new LogEntry(10L, 100L, "1", "ctx", false, 200L);
+        LogEntry otherLogEntry = new LogEntry(11L, 101L, "1", "ctx", false, 200L);
+        LineMapper.RowMapper rowMapper = new LineMapper.RowMapper();
+
+        Line first = rowMapper.toLine(row(1L, LogLevel.INFO, logEntry), false);
+        Line second = rowMapper.toLine(row(2L, LogLevel.INFO, logEntry), false);
+        Line otherLevel = rowMapper.toLine(row(3L, LogLevel.ERROR, logEntry), false);
+        Line noLevel = rowMapper.toLine(row(4L, null, logEntry), false);
+        Line otherEntry = rowMapper.toLine(row(5L, LogLevel.INFO, otherLogEntry), false);
+
+        Assertions.assertSame(first.getMdc(), second.getMdc());
+        Assertions.assertEquals("ERROR", otherLevel.getMdc().get("level"));
+        Assertions.assertFalse(noLevel.getMdc().containsKey("level"));
+        Assertions.assertEquals("101", otherEntry.getMdc().get("processContext"));
+        Assertions.assertEquals("100", first.getMdc().get("processContext"));
+    }
+
+    private static Object[] row(long id, LogLevel level, LogEntry logEntry) {
+        return new Object[] { id, TIMESTAMP, 5L, level, "org.jboss.pnc", "message", logEntry.getId(),
+                logEntry.getProcessContext(), logEntry.getProcessContextVariant(), logEntry.getRequestContext(),
+                logEntry.getBuildId() };
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.source.db;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jboss.pnc.bifrost.Config;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class LogEntryCacheTest {
+
+    private LogEntryCache cache;
+
+    @BeforeEach
+    public void init() {
+        Config config = new Config();
+        config.setLogEntryCacheMaxEntries(100);
+        config.setLogEntryCacheIdleTimeout(Duration.ofMinutes(1));
+        cache = new LogEntryCache();
+        cache.config = config;
+        cache.registry = new SimpleMeterRegistry();
+        cache.init();
+    }
+
+    @Test
+    public void shouldLoadEqualEntriesOnce() {
+        AtomicInteger loaded = new AtomicInteger();
+
+        LogEntry first = cache.get(new LogEntry(1L, 100L, "0", "ctx", false, 200L), e -> {
+            loaded.incrementAndGet();
+            return e;
+        });
+        LogEntry second = cache.get(new LogEntry(2L, 100L, "0", "ctx", false, 200L), e -> {
+            loaded.incrementAndGet();
+            return e;
+        });
+        LogEntry other = cache.get(new LogEntry(3L, 100L, "0", "ctx", true, 200L), e -> {
+            loaded.incrementAndGet();
+            return e;
+        });
+
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(1L, second.getId());
+        Assertions.assertEquals(3L, other.getId());
+        Assertions.assertEquals(2, loaded.get());
+    }
+
+    @Test
+    public void shouldCoalesceConcurrentLoads() throws Exception {
+        AtomicInteger loaded = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<LogEntry>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                long id = i;
+                results.add(executor.submit(() -> cache.get(new LogEntry(id, 100L, "0", null, false, null), e -> {
+                    loaded.incrementAndGet();
+                    loading.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                    return e;
+                })));
+                if (i == 0) {
+                    Assertions.assertTrue(loading.await(5, TimeUnit.SECONDS));
+                }
+            }
+            release.countDown();
+
+            LogEntry loadedEntry = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<LogEntry> result : results) {
+                Assertions.assertSame(loadedEntry, result.get(5, TimeUnit.SECONDS));
+            }
+            Assertions.assertEquals(1, loaded.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldNotCacheFailedLoad() {
+        LogEntry logEntry = new LogEntry(1L, 100L, "0", null, false, null);
+        Assertions.assertThrows(IllegalStateException.class, () -> cache.get(logEntry, e -> {
+            throw new IllegalStateException("Cannot persist.");
+        }));
+        Assertions.assertSame(logEntry, cache.get(logEntry, e -> e));
+    }
+
+    @Test
+    public void shouldLoadOtherEntriesWhileLoading() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            LogEntry slowEntry = new LogEntry(1L, 100L, "0", null, false, null);
+            Future<LogEntry> slow = executor.submit(() -> cache.get(slowEntry, e -> {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    throw new RuntimeException(ex);
+                }
+                return e;
+            }));
+            Assertions.assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            // enough entries for some of them to share the hash bin of the one being loaded
+            Future<Integer> others = executor.submit(() -> {
+                int loaded = 0;
+                for (long i = 2; i < 1000; i++) {
+                    LogEntry other = new LogEntry(i, 100L + i, "0", null, false, null);
+                    if (cache.get(other, e -> e) == other) {
+                        loaded++;
+                    }
+                }
+                return loaded;
+            });
+            Assertions.assertEquals(998, others.get(5, TimeUnit.SECONDS));
+            release.countDown();
+            Assertions.assertSame(slowEntry, slow.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.source.db;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jboss.pnc.api.bifrost.enums.Direction;
+import org.jboss.pnc.bifrost.Config;
+import org.jboss.pnc.bifrost.test.Wait;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class QueryStatsTest {
+
+    @Test
+    public void shouldDescribeShapeWithoutValues() {
+        String shape = QueryStats.shape(
+                Map.of("mdc.processContext", List.of("1"), "level", List.of("INFO", "ERROR")),
+                Map.of("loggerName", List.of("org.jboss")),
+                Optional.empty(),
+                Direction.ASC);
+
+        Assertions.assertEquals("match:level,mdc.processContext;prefix:loggerName;direction:ASC;after:false", shape);
+    }
+
+    @Test
+    public void shouldNumberParametersOutOfLiterals() {
+        Assertions.assertEquals(
+                "select * from LogLine where id = $1 and line = '?' and loggerName like $2",
+                QueryStats.numberParameters("select * from LogLine where id = ? and line = '?' and loggerName like ?"));
+    }
+
+    @Test
+    public void shouldKeepLatestSlowQueries() {
+        Config config = new Config();
+        config.setSlowQueryThreshold(Duration.ZERO);
+        config.setSlowQueryMaxKept(2);
+        QueryStats queryStats = new QueryStats();
+        queryStats.config = config;
+        queryStats.registry = new SimpleMeterRegistry();
+
+        for (int i = 1; i <= 3; i++) {
+            QueryStats.Sample sample = queryStats.start("shape" + i, 100);
+            sample.addRows(i);
+            queryStats.record(sample);
+        }
+
+        List<QueryStats.SlowQuery> slowQueries = queryStats.getSlowQueries();
+        Assertions.assertEquals(2, slowQueries.size());
+        Assertions.assertEquals("shape3", slowQueries.get(0).getShape());
+        Assertions.assertEquals("shape2", slowQueries.get(1).getShape());
+    }
+
+    @Test
+    public void shouldExplainShapeOnceInBackground() throws Exception {
+        Config config = new Config();
+        config.setSlowQueryThreshold(Duration.ZERO);
+        config.setSlowQueryMaxKept(10);
+        config.setSlowQueryExplain(true);
+        config.setSlowQueryExplainInterval(Duration.ofHours(1));
+        Set<String> explainThreads = ConcurrentHashMap.newKeySet();
+        QueryStats queryStats = new QueryStats() {
+            @Override
+            String explain(String sql) {
+                explainThreads.add(Thread.currentThread().getName());
+                return "plan of " + sql;
+            }
+        };
+        queryStats.config = config;
+        queryStats.registry = new SimpleMeterRegistry();
+
+        for (int i = 1; i <= 2; i++) {
+            QueryStats.Sample sample = queryStats.start("shape", 100);
+            sample.getSql().set("select " + i);
+            queryStats.record(sample);
+        }
+
+        Wait.forCondition(() -> queryStats.getSlowQueries().size() == 2, 3L, ChronoUnit.SECONDS);
+        List<String> plans = queryStats.getSlowQueries()
+                .stream()
+                .map(QueryStats.SlowQuery::getPlan)
+                .filter(Objects::nonNull)
+                .toList();
+        Assertions.assertEquals(List.of("plan of select 1"), plans);
+        Assertions.assertFalse(explainThreads.contains(Thread.currentThread().getName()));
+    }
+}
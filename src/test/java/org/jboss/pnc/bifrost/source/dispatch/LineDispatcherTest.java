@@ -0,0 +1,134 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2020-2022 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.bifrost.source.dispatch;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jboss.pnc.api.bifrost.dto.Line;
+import org.jboss.pnc.bifrost.Config;
+import org.jboss.pnc.bifrost.source.db.FieldMapping;
+import org.jboss.pnc.bifrost.source.db.LogEntry;
+import org.jboss.pnc.bifrost.source.db.LogLevel;
+import org.jboss.pnc.bifrost.source.db.LogLine;
+import org.jboss.pnc.common.pnc.LongBase32IdConverter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
+ */
+public class LineDispatcherTest {
+
+    private LineDispatcher dispatcher;
+
+    @BeforeEach
+    public void init() {
+        Config config = new Config();
+        config.setLiveDispatchQueueSize(2);
+        dispatcher = new LineDispatcher();
+        dispatcher.fieldMapping = new FieldMapping();
+        dispatcher.config = config;
+        dispatcher.registry = new SimpleMeterRegistry();
+        dispatcher.initMetrics();
+    }
+
+    @Test
+    public void shouldDispatchMatchingLinesOnly() {
+        LogEntry logEntry = new LogEntry(1L, 100L, "0", "ctx", false, 200L);
+        LogEntry otherLogEntry = new LogEntry(2L, 101L, "0", "ctx", false, 201L);
+
+        AtomicInteger notified = new AtomicInteger();
+        LineFeed feed = dispatcher.register(
+                Map.of("mdc.processContext", List.of(LongBase32IdConverter.toString(100L))),
+                Map.of("loggerName", List.of("org.jboss.pnc")),
+                notified::incrementAndGet);
+
+        dispatcher.publish(
+                List.of(
+                        logLine(1L, logEntry, "org.jboss.pnc.build"),
+                        logLine(2L, logEntry, "org.other"),
+                        logLine(3L, otherLogEntry, "org.jboss.pnc.build")));
+
+        Assertions.assertEquals(1, notified.get());
+        List<Line> received = new ArrayList<>();
+        feed.drain(10, received::add);
+        Assertions.assertEquals(1, received.size());
+        Assertions.assertEquals("1", received.get(0).getId());
+        Assertions.assertEquals("100", received.get(0).getMdc().get("processContext"));
+    }
+
+    @Test
+    public void shouldNotifyOncePerDrain() {
+        LogEntry logEntry = new LogEntry(1L, 100L, "0", "ctx", false, 200L);
+        AtomicInteger notified = new AtomicInteger();
+        LineFeed feed = dispatcher.register(
+                Map.of("mdc.buildId", List.of(LongBase32IdConverter.toString(200L))),
+                Map.of(),
+                notified::incrementAndGet);
+
+        dispatcher.publish(List.of(logLine(1L, logEntry, "org.jboss.pnc.build")));
+        dispatcher.publish(List.of(logLine(2L, logEntry, "org.jboss.pnc.build")));
+        Assertions.assertEquals(1, notified.get());
+
+        feed.drain(10, line -> {});
+        dispatcher.publish(List.of(logLine(3L, logEntry, "org.jboss.pnc.build")));
+        Assertions.assertEquals(2, notified.get());
+    }
+
+    @Test
+    public void shouldMarkOverflowedFeed() {
+        LogEntry logEntry = new LogEntry(1L, 100L, "0", "ctx", false, 200L);
+        LineFeed feed = dispatcher.register(Map.of(), Map.of(), () -> {});
+
+        dispatcher.publish(
+                List.of(
+                        logLine(1L, logEntry, "org.jboss.pnc.build"),
+                        logLine(2L, logEntry, "org.jboss.pnc.build"),
+                        logLine(3L, logEntry, "org.jboss.pnc.build")));
+
+        Assertions.assertTrue(feed.resetIfOverflowed());
+        Assertions.assertTrue(feed.isEmpty());
+        Assertions.assertFalse(feed.resetIfOverflowed());
+    }
+
+    @Test
+    public void shouldNotDispatchToUnregisteredFeed() {
+        LogEntry logEntry = new LogEntry(1L, 100L, "0", "ctx", false, 200L);
+        AtomicInteger notified = new AtomicInteger();
+        LineFeed feed = dispatcher.register(
+                Map.of("mdc.processContext", List.of(LongBase32IdConverter.toString(100L))),
+                Map.of(),
+                notified::incrementAndGet);
+        dispatcher.unregister(feed);
+
+        dispatcher.publish(List.of(logLine(1L, logEntry, "org.jboss.pnc.build")));
+
+        Assertions.assertEquals(0, notified.get());
+        Assertions.assertTrue(feed.isEmpty());
+    }
+
+    private LogLine logLine(long id, LogEntry logEntry, String loggerName) {
+        return new LogLine(id, logEntry, OffsetDateTime.now(), id, LogLevel.INFO, loggerName, "Message " + id);
+    }
+}